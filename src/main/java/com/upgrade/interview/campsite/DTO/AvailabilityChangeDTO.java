@@ -0,0 +1,49 @@
+package com.upgrade.interview.campsite.DTO;
+
+import com.upgrade.interview.campsite.utils.BookingStatus;
+
+import java.time.LocalDate;
+
+/**
+ * The nights [from, to) of a site became reserved or free.
+ */
+public class AvailabilityChangeDTO {
+
+    private final long siteId;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final BookingStatus status;
+
+    public AvailabilityChangeDTO(long siteId, LocalDate from, LocalDate to, BookingStatus status) {
+        this.siteId = siteId;
+        this.from = from;
+        this.to = to;
+        this.status = status;
+    }
+
+    public long getSiteId() {
+        return siteId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public BookingStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "AvailabilityChangeDTO{" +
+                "siteId=" + siteId +
+                ", from=" + from +
+                ", to=" + to +
+                ", status=" + status +
+                '}';
+    }
+}
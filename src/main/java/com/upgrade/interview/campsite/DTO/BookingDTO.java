@@ -12,6 +12,9 @@ public class BookingDTO {
     @ApiModelProperty(value = "Unique identifier", readOnly = true)
     private final Long uid;
 
+    @ApiModelProperty(value = "Site to book, the default site if none")
+    private Long siteId;
+
     @ApiModelProperty(value = "Visitor's email", required = true)
     private String visitorEmail;
 
@@ -27,7 +30,12 @@ public class BookingDTO {
     private LocalDate departureDate;
 
     public BookingDTO(Long uid, String visitorEmail, String visitorFullName, LocalDate arrivalDate, LocalDate departureDate) {
+        this(uid, null, visitorEmail, visitorFullName, arrivalDate, departureDate);
+    }
+
+    public BookingDTO(Long uid, Long siteId, String visitorEmail, String visitorFullName, LocalDate arrivalDate, LocalDate departureDate) {
         this.uid = uid;
+        this.siteId = siteId;
         this.visitorEmail = visitorEmail;
         this.visitorFullName = visitorFullName;
         this.arrivalDate = arrivalDate;
@@ -38,6 +46,10 @@ public class BookingDTO {
         this(null, null, null, null, null);
     }
 
+    public Long getSiteId() {
+        return siteId;
+    }
+
     public String getVisitorEmail() {
         return visitorEmail;
     }
@@ -58,6 +70,10 @@ public class BookingDTO {
         return uid;
     }
 
+    public void setSiteId(Long siteId) {
+        this.siteId = siteId;
+    }
+
     public void setVisitorEmail(String visitorEmail) {
         this.visitorEmail = visitorEmail;
     }
@@ -78,7 +94,8 @@ public class BookingDTO {
     public String toString() {
         return "BookingDTO{" +
                 "uid='" + uid + '\'' +
-                "visitorEmail='" + visitorEmail + '\'' +
+                ", siteId=" + siteId +
+                ", visitorEmail='" + visitorEmail + '\'' +
                 ", visitorFullName='" + visitorFullName + '\'' +
                 ", arrivalDate=" + arrivalDate +
                 ", departureDate=" + departureDate +
@@ -0,0 +1,39 @@
+package com.upgrade.interview.campsite.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+@ApiModel(value = "One page of bookings, by arrival date")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingPageDTO {
+
+    @ApiModelProperty(value = "Bookings of the page")
+    private final List<BookingDTO> bookings;
+
+    @ApiModelProperty(value = "Opaque token of the next page, absent on the last page")
+    private final String next;
+
+    public BookingPageDTO(List<BookingDTO> bookings, String next) {
+        this.bookings = bookings;
+        this.next = next;
+    }
+
+    public List<BookingDTO> getBookings() {
+        return bookings;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingPageDTO{" +
+                "bookings=" + bookings.size() +
+                ", next='" + next + '\'' +
+                '}';
+    }
+}
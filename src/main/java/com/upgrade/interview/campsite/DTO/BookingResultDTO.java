@@ -0,0 +1,80 @@
+package com.upgrade.interview.campsite.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(value = "Outcome of one booking of a batch")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingResultDTO {
+
+    public enum Status {
+        CREATED, CONFLICT, INVALID
+    }
+
+    @ApiModelProperty(value = "Position of the booking in the batch")
+    private final int index;
+
+    @ApiModelProperty(value = "Outcome of the booking")
+    private final Status status;
+
+    @ApiModelProperty(value = "Unique identifier of the created booking")
+    private final Long uid;
+
+    @ApiModelProperty(value = "Why the booking was not created")
+    private final String message;
+
+    @ApiModelProperty(value = "Conflict reason")
+    private final String reason;
+
+    private BookingResultDTO(int index, Status status, Long uid, String message, String reason) {
+        this.index = index;
+        this.status = status;
+        this.uid = uid;
+        this.message = message;
+        this.reason = reason;
+    }
+
+    public static BookingResultDTO created(int index, Long uid) {
+        return new BookingResultDTO(index, Status.CREATED, uid, null, null);
+    }
+
+    public static BookingResultDTO conflict(int index, String message, String reason) {
+        return new BookingResultDTO(index, Status.CONFLICT, null, message, reason);
+    }
+
+    public static BookingResultDTO invalid(int index, String message) {
+        return new BookingResultDTO(index, Status.INVALID, null, message, null);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getUid() {
+        return uid;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingResultDTO{" +
+                "index=" + index +
+                ", status=" + status +
+                ", uid=" + uid +
+                ", message='" + message + '\'' +
+                ", reason='" + reason + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package com.upgrade.interview.campsite.DTO;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@ApiModel(value = "Nights held for a checkout, until confirmed into a booking or expired")
+public class HoldDTO {
+
+    @ApiModelProperty(value = "Unique identifier of the hold")
+    private final String holdId;
+
+    @ApiModelProperty(value = "Held site")
+    private final Long siteId;
+
+    @ApiModelProperty(value = "Visitor's email")
+    private final String visitorEmail;
+
+    @ApiModelProperty(value = "Visitor's full name")
+    private final String visitorFullName;
+
+    @ApiModelProperty(value = "Arrival date", example = "YYYY-MM-DD")
+    private final LocalDate arrivalDate;
+
+    @ApiModelProperty(value = "Departure date", example = "YYYY-MM-DD")
+    private final LocalDate departureDate;
+
+    @ApiModelProperty(value = "When the nights are released if the hold is not confirmed")
+    private final Instant expiresAt;
+
+    public HoldDTO(String holdId, Long siteId, String visitorEmail, String visitorFullName, LocalDate arrivalDate, LocalDate departureDate, Instant expiresAt) {
+        this.holdId = holdId;
+        this.siteId = siteId;
+        this.visitorEmail = visitorEmail;
+        this.visitorFullName = visitorFullName;
+        this.arrivalDate = arrivalDate;
+        this.departureDate = departureDate;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public Long getSiteId() {
+        return siteId;
+    }
+
+    public String getVisitorEmail() {
+        return visitorEmail;
+    }
+
+    public String getVisitorFullName() {
+        return visitorFullName;
+    }
+
+    public LocalDate getArrivalDate() {
+        return arrivalDate;
+    }
+
+    public LocalDate getDepartureDate() {
+        return departureDate;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "HoldDTO{" +
+                "holdId='" + holdId + '\'' +
+                ", siteId=" + siteId +
+                ", arrivalDate=" + arrivalDate +
+                ", departureDate=" + departureDate +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -1,7 +1,10 @@
 package com.upgrade.interview.campsite.controller;
 
 import com.upgrade.interview.campsite.DTO.AvailabilityDTO;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import com.upgrade.interview.campsite.service.AvailabilityBroadcaster;
 import com.upgrade.interview.campsite.service.AvailabilityService;
+import com.upgrade.interview.campsite.service.CalendarVersion;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
@@ -9,9 +12,12 @@ import io.swagger.annotations.ApiResponses;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.HttpServletResponse;
 import java.time.LocalDate;
@@ -22,27 +28,94 @@ public class AvailabilityController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AvailabilityController.class);
 
+    private static final String NIGHTS_FORMAT = "nights";
+    private static final String RANGES_FORMAT = "ranges";
+
     private final AvailabilityService availabilityService;
+    private final CalendarVersion calendarVersion;
+    private final AvailabilityBroadcaster availabilityBroadcaster;
 
-    public AvailabilityController(AvailabilityService availabilityService) {
+    public AvailabilityController(AvailabilityService availabilityService, CalendarVersion calendarVersion,
+                                  AvailabilityBroadcaster availabilityBroadcaster) {
         this.availabilityService = availabilityService;
+        this.calendarVersion = calendarVersion;
+        this.availabilityBroadcaster = availabilityBroadcaster;
     }
 
     @ApiResponses(value = {
             @ApiResponse(code = HttpServletResponse.SC_OK, message = "Availabilities if there is one"),
+            @ApiResponse(code = HttpServletResponse.SC_NOT_MODIFIED, message = "Calendar unchanged since the ETag given in If-None-Match"),
             @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error"),
-            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid date range: start date is greater than the end date")
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid date range or format")
     })
-    @ApiOperation(value = "Availabilities for a given date range with the default being 1 month")
+    @ApiOperation(value = "Availabilities of a site for a given date range with the default being 1 month. Either one entry per free night or merged free date ranges")
     @GetMapping("/availabilities")
     public Collection<AvailabilityDTO> availabilities(
+            @ApiParam(value = "Site, the default site if none", name = "siteId")
+            @RequestParam(required = false) Long siteId,
             @ApiParam(value = "Start date range", name = "from", example = "YYYY-MM-DD")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             @RequestParam(required = false) LocalDate from,
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             @ApiParam(value = "End date range", name = "to", example = "YYYY-MM-DD")
-            @RequestParam(required = false) LocalDate to) {
-        LOGGER.info("About to get availabilities");
-        return this.availabilityService.availabilities(from, to);
+            @RequestParam(required = false) LocalDate to,
+            @ApiParam(value = "Response format", name = "format", allowableValues = NIGHTS_FORMAT + "," + RANGES_FORMAT)
+            @RequestParam(required = false, defaultValue = NIGHTS_FORMAT) String format,
+            WebRequest request) {
+        LOGGER.info("About to get availabilities SiteId={} Format={}", siteId, format);
+        if (!NIGHTS_FORMAT.equalsIgnoreCase(format) && !RANGES_FORMAT.equalsIgnoreCase(format)) {
+            LOGGER.error("Invalid availabilities format {}", format);
+            throw new InvalidInputException("Invalid format: expected one of " + NIGHTS_FORMAT + ", " + RANGES_FORMAT);
+        }
+
+        this.availabilityService.checkDateRange(from, to);
+        boolean ranges = RANGES_FORMAT.equalsIgnoreCase(format);
+        if (request.checkNotModified(this.calendarVersion.etag("availabilities", siteId, from, to, ranges ? RANGES_FORMAT : NIGHTS_FORMAT))) {
+            return null;
+        }
+
+        if (ranges) {
+            return this.availabilityService.availabilityRanges(siteId, from, to);
+        }
+
+        return this.availabilityService.availabilities(siteId, from, to);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_OK, message = "Server-sent events, one \"availability\" event per change of the nights of a site"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid site")
+    })
+    @ApiOperation(value = "Stream of the availability changes: the nights [from, to) of a site became RESERVED or FREE. A client too slow to consume them is disconnected")
+    @GetMapping(value = "/availabilities/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(
+            @ApiParam(value = "Site to follow, all the sites if none", name = "siteId")
+            @RequestParam(required = false) Long siteId) {
+        LOGGER.info("About to stream the availability changes SiteId={}", siteId);
+        return this.availabilityBroadcaster.subscribe(siteId);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_OK, message = "Identifiers of the free sites if there is one"),
+            @ApiResponse(code = HttpServletResponse.SC_NOT_MODIFIED, message = "Calendar unchanged since the ETag given in If-None-Match"),
+            @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid date range")
+    })
+    @ApiOperation(value = "Sites free for every night of a given date range with the default being 1 month")
+    @GetMapping("/availabilities/sites")
+    public Collection<Long> freeSites(
+            @ApiParam(value = "Start date range", name = "from", example = "YYYY-MM-DD")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @RequestParam(required = false) LocalDate from,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @ApiParam(value = "End date range", name = "to", example = "YYYY-MM-DD")
+            @RequestParam(required = false) LocalDate to,
+            WebRequest request) {
+        LOGGER.info("About to get the free sites");
+        this.availabilityService.checkDateRange(from, to);
+        if (request.checkNotModified(this.calendarVersion.etag("sites", from, to))) {
+            return null;
+        }
+
+        return this.availabilityService.freeSites(from, to);
     }
 }
@@ -1,7 +1,12 @@
 package com.upgrade.interview.campsite.controller;
 
 import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.DTO.BookingPageDTO;
+import com.upgrade.interview.campsite.DTO.BookingResultDTO;
+import com.upgrade.interview.campsite.service.BookingExporter;
 import com.upgrade.interview.campsite.service.BookingService;
+import com.upgrade.interview.campsite.service.CalendarVersion;
+import com.upgrade.interview.campsite.service.IdempotencyStore;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
@@ -10,12 +15,19 @@ import org.apache.catalina.connector.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/bookings")
@@ -23,74 +35,178 @@ public class BookingController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookingController.class);
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final BookingService bookingService;
+    private final CalendarVersion calendarVersion;
+    private final BookingExporter bookingExporter;
+    private final IdempotencyStore idempotencyStore;
 
-    public BookingController(BookingService bookingService) {
+    public BookingController(BookingService bookingService, CalendarVersion calendarVersion, BookingExporter bookingExporter,
+                             IdempotencyStore idempotencyStore) {
         this.bookingService = bookingService;
+        this.calendarVersion = calendarVersion;
+        this.bookingExporter = bookingExporter;
+        this.idempotencyStore = idempotencyStore;
     }
 
-    @ApiOperation(value = "To retrieve the bookings for a given date range with the default being 1 month")
+    @ApiOperation(value = "To retrieve the bookings of a site for a given date range with the default being 1 month")
     @ApiResponses(value = {
             @ApiResponse(code = HttpServletResponse.SC_OK, message = "The bookings list if there are bookings otherwise empty list"),
+            @ApiResponse(code = HttpServletResponse.SC_NOT_MODIFIED, message = "Calendar unchanged since the ETag given in If-None-Match"),
             @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid date range: start date is greater than the end date"),
             @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
     })
     @GetMapping
     public Collection<BookingDTO> bookings(
+            @ApiParam(name = "siteId", value = "Site, the default site if none")
+            @RequestParam(required = false) Long siteId,
             @ApiParam(name = "from", value = "Start date range", example = "YYYY-MM-DD")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             @RequestParam(required = false) LocalDate from,
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             @ApiParam(name = "to", value = "End date range", example = "YYYY-MM-DD")
-            @RequestParam(required = false) LocalDate to) {
-        LOGGER.info("About to get all the bookings");
-        Collection<BookingDTO> bookings = this.bookingService.bookings(from, to);
+            @RequestParam(required = false) LocalDate to,
+            WebRequest request) {
+        LOGGER.info("About to get all the bookings SiteId={}", siteId);
+        this.bookingService.checkDateRange(from, to);
+        if (request.checkNotModified(this.calendarVersion.etag("bookings", siteId, from, to))) {
+            return null;
+        }
+
+        Collection<BookingDTO> bookings = this.bookingService.bookings(siteId, from, to);
         LOGGER.info("{} bookings found", bookings.size());
         return bookings;
     }
 
-    @ApiOperation(value = "To reserve the campsite. Return a unique booking identifier")
+    @ApiOperation(value = "To retrieve one page of the bookings of a site for a given date range with the default being 1 month, sorted by arrival date")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_OK, message = "The bookings of the page and the token of the next page if any"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid date range, page size or page token"),
+            @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
+    })
+    @GetMapping("/page")
+    public BookingPageDTO bookingsPage(
+            @ApiParam(name = "siteId", value = "Site, the default site if none")
+            @RequestParam(required = false) Long siteId,
+            @ApiParam(name = "from", value = "Start date range", example = "YYYY-MM-DD")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @RequestParam(required = false) LocalDate from,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @ApiParam(name = "to", value = "End date range", example = "YYYY-MM-DD")
+            @RequestParam(required = false) LocalDate to,
+            @ApiParam(name = "limit", value = "Maximum number of bookings of the page")
+            @RequestParam(required = false, defaultValue = "50") int limit,
+            @ApiParam(name = "next", value = "Token of the page, as returned with the previous page. The first page if none")
+            @RequestParam(required = false) String next) {
+        LOGGER.info("About to get a page of the bookings SiteId={} Limit={} Next={}", siteId, limit, next);
+        BookingPageDTO page = this.bookingService.bookingsPage(siteId, from, to, limit, next);
+        LOGGER.info("{} bookings found", page.getBookings().size());
+        return page;
+    }
+
+    @ApiOperation(value = "To export the bookings of a site for a given date range, of any size, as JSON or CSV. The bookings are streamed by arrival date")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_OK, message = "The bookings, streamed"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid site, date range or format"),
+            @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @ApiParam(name = "siteId", value = "Site, the default site if none")
+            @RequestParam(required = false) Long siteId,
+            @ApiParam(name = "from", value = "Start date range", example = "YYYY-MM-DD", required = true)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @RequestParam LocalDate from,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @ApiParam(name = "to", value = "End date range", example = "YYYY-MM-DD", required = true)
+            @RequestParam LocalDate to,
+            @ApiParam(name = "format", value = "Export format", allowableValues = "json,csv")
+            @RequestParam(required = false, defaultValue = "json") String format) {
+        LOGGER.info("About to export the bookings SiteId={} From={} To={} Format={}", siteId, from, to, format);
+        final BookingExporter.Format exportFormat = BookingExporter.Format.of(format);
+        final long site = this.bookingExporter.checkExport(siteId, from, to);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=bookings-" + site + "-" + from + "-" + to + "." + exportFormat.name().toLowerCase())
+                .body(outputStream -> this.bookingExporter.export(site, from, to, exportFormat, outputStream));
+    }
+
+    @ApiOperation(value = "To reserve the campsite. Return a unique booking identifier. A retry with the same Idempotency-Key gets the response of the first request")
     @ApiResponses(value = {
             @ApiResponse(code = HttpServletResponse.SC_CREATED, message = "Campsite successfully booked. Return the booking UUID."),
             @ApiResponse(code = HttpServletResponse.SC_CONFLICT, message = "Campsite already booked at this period. Please select another date range"),
             @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid booking date range: either the reservation is for more than 3 days or arrival date is same/greater than the departure date"),
+            @ApiResponse(code = HttpServletResponse.SC_SERVICE_UNAVAILABLE, message = "Too many bookings in progress on the site. Please retry"),
             @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
     })
     @PostMapping
-    public ResponseEntity<Long> book(@ApiParam(value = "Booking to create", required = true) BookingDTO booking) {
-        LOGGER.info("About to book the campsite Booking={}", booking);
-        Long bookUID = bookingService.book(booking);
-        LOGGER.info("Campsite successfully booked. BookUID={}", bookUID);
-        return ResponseEntity.status(Response.SC_CREATED).body(bookUID);
+    public CompletableFuture<ResponseEntity<Long>> book(@ApiParam(value = "Booking to create", required = true) BookingDTO booking,
+                                                        @ApiParam(value = "Unique key of the request, the same for its retries")
+                                                        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                        HttpServletRequest request) {
+        LOGGER.info("About to book the campsite Booking={} IdempotencyKey={}", booking, idempotencyKey);
+        return this.idempotencyStore.execute(RateLimitInterceptor.client(request), "book", idempotencyKey, fingerprint(booking), () -> bookingService.bookAsync(booking)).thenApply(bookUID -> {
+            LOGGER.info("Campsite successfully booked. BookUID={}", bookUID);
+            return ResponseEntity.status(Response.SC_CREATED).body(bookUID);
+        });
     }
 
 
+    @ApiOperation(value = "To reserve the campsite for many bookings at once, in a single transaction. Return the outcome of each booking in the order of the batch")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_OK, message = "Outcome of each booking: created with its UID, conflict or invalid"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Too many bookings in the batch"),
+            @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
+    })
+    @PostMapping("/batch")
+    public List<BookingResultDTO> bookAll(@ApiParam(value = "Bookings to create", required = true) @RequestBody List<BookingDTO> bookings) {
+        LOGGER.info("About to book the campsite for {} bookings", bookings.size());
+        List<BookingResultDTO> results = this.bookingService.bookAll(bookings);
+        LOGGER.info("Batch of {} bookings processed", results.size());
+        return results;
+    }
+
     @ApiOperation(value = "To cancel a reservation")
     @ApiResponses(value = {
             @ApiResponse(code = HttpServletResponse.SC_OK, message = "Reservation successfully cancelled"),
+            @ApiResponse(code = HttpServletResponse.SC_SERVICE_UNAVAILABLE, message = "Too many bookings in progress on the site. Please retry"),
             @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
     })
     @DeleteMapping("/{bookUID}")
-    public void cancel(@ApiParam(value = "Unique booking identifier", required = true)
-                           @PathVariable("bookUID") Long bookUID) {
+    public CompletableFuture<Void> cancel(@ApiParam(value = "Unique booking identifier", required = true)
+                                          @PathVariable("bookUID") Long bookUID) {
         LOGGER.info("About to cancel the booking with ID={}", bookUID);
-        this.bookingService.cancel(bookUID);
-        LOGGER.info("Booking with ID={} successfully cancelled", bookUID);
+        return this.bookingService.cancelAsync(bookUID)
+                .thenAccept(cancelledUID -> LOGGER.info("Booking with ID={} successfully cancelled", cancelledUID));
     }
 
-    @ApiOperation(value = "To modify a reservation. Return a unique ID of the new booking")
+    @ApiOperation(value = "To modify a reservation in place. Return its unique ID, which is unchanged. A retry with the same Idempotency-Key gets the response of the first request")
     @ApiResponses(value = {
-            @ApiResponse(code = HttpServletResponse.SC_OK, message = "Reservation successfully modified. Return the UID of the new booking"),
+            @ApiResponse(code = HttpServletResponse.SC_OK, message = "Reservation successfully modified. Return the UID of the booking"),
             @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid booking date range: either the reservation is for more than 3 days or arrival date is same/greater than the departure date"),
             @ApiResponse(code = HttpServletResponse.SC_CONFLICT, message = "Campsite already booked at this period. Please select another date range"),
+            @ApiResponse(code = HttpServletResponse.SC_SERVICE_UNAVAILABLE, message = "Too many bookings in progress on the site. Please retry"),
             @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
     })
     @PutMapping("/{bookingUID}")
-    public ResponseEntity<Long> modify(@ApiParam(value = "Unique booking identifier", required = true) @PathVariable("bookingUID") Long bookingUID,
-                                       @RequestBody BookingDTO booking) {
-        LOGGER.info("About to modify the booking with ID={}", bookingUID);
-        Long newBookingUUID = this.bookingService.modify(bookingUID, booking);
-        LOGGER.info("Booking successfully modified");
-        return ResponseEntity.ok(newBookingUUID);
+    public CompletableFuture<ResponseEntity<Long>> modify(@ApiParam(value = "Unique booking identifier", required = true) @PathVariable("bookingUID") Long bookingUID,
+                                                          @RequestBody BookingDTO booking,
+                                                          @ApiParam(value = "Unique key of the request, the same for its retries")
+                                                          @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                          HttpServletRequest request) {
+        LOGGER.info("About to modify the booking with ID={} IdempotencyKey={}", bookingUID, idempotencyKey);
+        return this.idempotencyStore.execute(RateLimitInterceptor.client(request), "modify", idempotencyKey, Arrays.asList(bookingUID, fingerprint(booking)),
+                () -> this.bookingService.modifyAsync(bookingUID, booking)).thenApply(modifiedUID -> {
+            LOGGER.info("Booking successfully modified");
+            return ResponseEntity.ok(modifiedUID);
+        });
+    }
+
+    /**
+     * What a booking request asks for, the retries of a request asking for the same.
+     */
+    private static List<Object> fingerprint(BookingDTO booking) {
+        return Arrays.asList(booking.getSiteId(), booking.getVisitorEmail(), booking.getVisitorFullName(), booking.getArrivalDate(), booking.getDepartureDate());
     }
 }
@@ -0,0 +1,77 @@
+package com.upgrade.interview.campsite.controller;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.DTO.HoldDTO;
+import com.upgrade.interview.campsite.service.BookingService;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.apache.catalina.connector.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/holds")
+public class HoldController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HoldController.class);
+
+    private final BookingService bookingService;
+
+    public HoldController(BookingService bookingService) {
+        this.bookingService = bookingService;
+    }
+
+    @ApiOperation(value = "To hold the nights of a booking for a few minutes during the checkout. Return the hold, to be confirmed before it expires")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_CREATED, message = "Nights successfully held. Return the hold"),
+            @ApiResponse(code = HttpServletResponse.SC_CONFLICT, message = "Campsite already booked or held at this period. Please select another date range"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "Invalid booking date range or hold duration"),
+            @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
+    })
+    @PostMapping
+    public ResponseEntity<HoldDTO> hold(@ApiParam(value = "Booking to hold", required = true) BookingDTO booking,
+                                        @ApiParam(name = "minutes", value = "How long the nights are held")
+                                        @RequestParam(required = false, defaultValue = "10") int minutes) {
+        LOGGER.info("About to hold the campsite Booking={} Minutes={}", booking, minutes);
+        HoldDTO hold = this.bookingService.hold(booking, minutes);
+        LOGGER.info("Campsite successfully held. Hold={}", hold);
+        return ResponseEntity.status(Response.SC_CREATED).body(hold);
+    }
+
+    @ApiOperation(value = "To confirm a hold into a booking. Return the unique booking identifier")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_CREATED, message = "Campsite successfully booked. Return the booking UID"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "No such hold, it may have expired"),
+            @ApiResponse(code = HttpServletResponse.SC_CONFLICT, message = "Campsite already booked at this period"),
+            @ApiResponse(code = HttpServletResponse.SC_SERVICE_UNAVAILABLE, message = "Too many bookings in progress on the site. Please retry"),
+            @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
+    })
+    @PostMapping("/{holdId}/confirm")
+    public CompletableFuture<ResponseEntity<Long>> confirm(@ApiParam(value = "Unique hold identifier", required = true) @PathVariable("holdId") String holdId) {
+        LOGGER.info("About to confirm the hold with ID={}", holdId);
+        return this.bookingService.confirmAsync(holdId).thenApply(bookUID -> {
+            LOGGER.info("Hold with ID={} successfully confirmed. BookUID={}", holdId, bookUID);
+            return ResponseEntity.status(Response.SC_CREATED).body(bookUID);
+        });
+    }
+
+    @ApiOperation(value = "To release a hold before it expires")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpServletResponse.SC_OK, message = "Hold successfully released"),
+            @ApiResponse(code = HttpServletResponse.SC_BAD_REQUEST, message = "No such hold, it may have expired"),
+            @ApiResponse(code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message = "Request processing error")
+    })
+    @DeleteMapping("/{holdId}")
+    public void release(@ApiParam(value = "Unique hold identifier", required = true) @PathVariable("holdId") String holdId) {
+        LOGGER.info("About to release the hold with ID={}", holdId);
+        this.bookingService.releaseHold(holdId);
+        LOGGER.info("Hold with ID={} successfully released", holdId);
+    }
+}
@@ -0,0 +1,47 @@
+package com.upgrade.interview.campsite.controller;
+
+import com.upgrade.interview.campsite.service.RateLimiter;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Applies the {@link RateLimiter} before the controllers: the client is identified by its API key, or by its address
+ * if it has none, and the safe methods use the read budget while the others use the write budget.
+ * The dispatch resuming an asynchronous request is not counted again.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    static final String API_KEY = "X-API-Key";
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        boolean read = method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS;
+        rateLimiter.acquire(client(request), read ? RateLimiter.Budget.READ : RateLimiter.Budget.WRITE);
+        return true;
+    }
+
+    /**
+     * @return the identity of the client making the request: its API key, or its address if it has none
+     */
+    static String client(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY);
+        return (apiKey != null && !apiKey.isEmpty()) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+}
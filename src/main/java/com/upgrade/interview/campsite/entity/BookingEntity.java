@@ -5,16 +5,29 @@ import java.time.LocalDate;
 import java.util.Objects;
 
 @Entity
-@Table(name = "booking", uniqueConstraints = @UniqueConstraint(columnNames = {"arrival_date", "departure_date", "status"}))
+@Table(name = "booking",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"site_id", "arrival_date", "departure_date", "is_parent"}),
+        indexes = {
+                @Index(name = "idx_booking_arrival", columnList = "site_id, is_parent, status, arrival_date, id, departure_date"),
+                @Index(name = "idx_booking_departure", columnList = "is_parent, status, departure_date, arrival_date"),
+                @Index(name = "idx_booking_parent_id", columnList = "parent_id")
+        })
 public class BookingEntity {
 
     @Version
     private Long version;
 
+    /**
+     * Pooled sequence: one sequence call allocates the ids of {@code allocationSize} inserts
+     */
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
     private Long id;
 
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
     @Column(name = "visitor_email")
     private String visitorEmail;
 
@@ -33,6 +46,12 @@ public class BookingEntity {
     @Column(name = "parent_id")
     private Long parentId;
 
+    /**
+     * True for the row representing a booking, false for the per-night slot rows
+     */
+    @Column(name = "is_parent", nullable = false)
+    private boolean parent;
+
     public BookingEntity() {
     }
 
@@ -52,6 +71,14 @@ public class BookingEntity {
         this.id = id;
     }
 
+    public Long getSiteId() {
+        return siteId;
+    }
+
+    public void setSiteId(Long siteId) {
+        this.siteId = siteId;
+    }
+
     public String getVisitorEmail() {
         return visitorEmail;
     }
@@ -125,16 +152,26 @@ public class BookingEntity {
         this.parentId = parentId;
     }
 
+    public boolean isParent() {
+        return parent;
+    }
+
+    public void setParent(boolean parent) {
+        this.parent = parent;
+    }
+
     @Override
     public String toString() {
         return "BookingEntity{" +
                 "id=" + id +
+                ", siteId=" + siteId +
                 ", visitorEmail='" + visitorEmail + '\'' +
                 ", visitorFullName='" + visitorFullName + '\'' +
                 ", arrivalDate=" + arrivalDate +
                 ", departureDate=" + departureDate +
                 ", status='" + status + '\'' +
                 ", parentId='" + parentId + '\'' +
+                ", parent=" + parent +
                 '}';
     }
 }
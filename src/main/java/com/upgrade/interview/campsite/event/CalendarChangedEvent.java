@@ -0,0 +1,50 @@
+package com.upgrade.interview.campsite.event;
+
+import com.upgrade.interview.campsite.utils.BookingStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Published by the booking service whenever the nights [from, to) of a site change status.
+ * Listeners are expected to react after the surrounding transaction commits.
+ */
+public class CalendarChangedEvent {
+
+    private final long siteId;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final BookingStatus status;
+
+    public CalendarChangedEvent(long siteId, LocalDate from, LocalDate to, BookingStatus status) {
+        this.siteId = siteId;
+        this.from = from;
+        this.to = to;
+        this.status = status;
+    }
+
+    public long getSiteId() {
+        return siteId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public BookingStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarChangedEvent{" +
+                "siteId=" + siteId +
+                ", from=" + from +
+                ", to=" + to +
+                ", status=" + status +
+                '}';
+    }
+}
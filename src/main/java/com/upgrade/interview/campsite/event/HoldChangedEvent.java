@@ -0,0 +1,48 @@
+package com.upgrade.interview.campsite.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published by the hold registry when the nights [from, to) of a site are held by a checkout or stop being held.
+ * Holds are not transactional: the event is published as soon as the hold is placed or released.
+ */
+public class HoldChangedEvent {
+
+    private final long siteId;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final boolean held;
+
+    public HoldChangedEvent(long siteId, LocalDate from, LocalDate to, boolean held) {
+        this.siteId = siteId;
+        this.from = from;
+        this.to = to;
+        this.held = held;
+    }
+
+    public long getSiteId() {
+        return siteId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public boolean isHeld() {
+        return held;
+    }
+
+    @Override
+    public String toString() {
+        return "HoldChangedEvent{" +
+                "siteId=" + siteId +
+                ", from=" + from +
+                ", to=" + to +
+                ", held=" + held +
+                '}';
+    }
+}
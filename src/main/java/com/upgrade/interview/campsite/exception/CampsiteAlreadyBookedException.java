@@ -2,8 +2,32 @@ package com.upgrade.interview.campsite.exception;
 
 public class CampsiteAlreadyBookedException extends RuntimeException {
 
+    /**
+     * Why the nights could not be booked.
+     */
+    public enum Reason {
+        /** One of the nights is already reserved */
+        UNAVAILABLE,
+        /** One of the nights is being booked by another request */
+        LOCKED,
+        /** One of the nights is held by another checkout */
+        HELD,
+        /** The booking was modified concurrently (optimistic lock failure) */
+        CONCURRENT_UPDATE
+    }
+
+    private final Reason reason;
+
     public CampsiteAlreadyBookedException(String message) {
+        this(message, Reason.UNAVAILABLE);
+    }
+
+    public CampsiteAlreadyBookedException(String message, Reason reason) {
         super(message);
+        this.reason = reason;
     }
 
+    public Reason getReason() {
+        return reason;
+    }
 }
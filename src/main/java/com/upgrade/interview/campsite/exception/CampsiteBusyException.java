@@ -0,0 +1,11 @@
+package com.upgrade.interview.campsite.exception;
+
+/**
+ * The request could not be admitted for now, e.g. too many requests waiting for the same site.
+ */
+public class CampsiteBusyException extends RuntimeException {
+
+    public CampsiteBusyException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,9 @@
 package com.upgrade.interview.campsite.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
@@ -17,7 +19,28 @@ public class CampsiteExceptionHandler extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(CampsiteAlreadyBookedException.class)
     public ResponseEntity<ExceptionResponse> handleCampsiteAlreadyBooked(CampsiteAlreadyBookedException exception) {
-        ExceptionResponse response = new ExceptionResponse(HttpStatus.CONFLICT, exception.getMessage());
+        ExceptionResponse response = new ExceptionResponse(HttpStatus.CONFLICT, exception.getMessage(), exception.getReason().name());
+        return new ResponseEntity<>(response, response.getStatus());
+    }
+
+    @ExceptionHandler(CampsiteBusyException.class)
+    public ResponseEntity<ExceptionResponse> handleCampsiteBusy(CampsiteBusyException exception) {
+        ExceptionResponse response = new ExceptionResponse(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        return new ResponseEntity<>(response, response.getStatus());
+    }
+
+    @ExceptionHandler(CampsiteRateLimitedException.class)
+    public ResponseEntity<ExceptionResponse> handleRateLimited(CampsiteRateLimitedException exception) {
+        ExceptionResponse response = new ExceptionResponse(HttpStatus.TOO_MANY_REQUESTS, exception.getMessage());
+        return ResponseEntity.status(response.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ExceptionResponse> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException exception) {
+        ExceptionResponse response = new ExceptionResponse(HttpStatus.CONFLICT, "The booking was modified concurrently. Please retry",
+                CampsiteAlreadyBookedException.Reason.CONCURRENT_UPDATE.name());
         return new ResponseEntity<>(response, response.getStatus());
     }
 }
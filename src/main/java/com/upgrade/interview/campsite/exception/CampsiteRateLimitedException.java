@@ -0,0 +1,18 @@
+package com.upgrade.interview.campsite.exception;
+
+/**
+ * The client made too many requests: it may retry after the given number of seconds.
+ */
+public class CampsiteRateLimitedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public CampsiteRateLimitedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,6 +1,7 @@
 package com.upgrade.interview.campsite.exception;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.http.HttpStatus;
 
 import java.time.LocalDateTime;
@@ -9,12 +10,19 @@ public class ExceptionResponse {
 
     private final HttpStatus status;
     private final String message;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String reason;
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy hh:mm:ss")
     private final LocalDateTime timestamp;
 
     public ExceptionResponse(HttpStatus status, String message) {
+        this(status, message, null);
+    }
+
+    public ExceptionResponse(HttpStatus status, String message, String reason) {
         this.status = status;
         this.message = message;
+        this.reason = reason;
         this.timestamp = LocalDateTime.now();
     }
 
@@ -26,6 +34,10 @@ public class ExceptionResponse {
         return message;
     }
 
+    public String getReason() {
+        return reason;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
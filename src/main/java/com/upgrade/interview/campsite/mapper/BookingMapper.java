@@ -9,10 +9,13 @@ import org.springframework.stereotype.Component;
 public class BookingMapper {
 
     public BookingDTO entityToDTO(BookingEntity entity) {
-        return new BookingDTO(entity.getId(), entity.getVisitorEmail(), entity.getVisitorFullName(), entity.getArrivalDate(), entity.getDepartureDate());
+        return new BookingDTO(entity.getId(), entity.getSiteId(), entity.getVisitorEmail(), entity.getVisitorFullName(), entity.getArrivalDate(), entity.getDepartureDate());
     }
 
     public BookingEntity dtoToEntity(BookingDTO dto) {
-        return new BookingEntity(dto.getVisitorEmail(), dto.getVisitorFullName(), dto.getArrivalDate(), dto.getDepartureDate(), BookingStatus.RESERVED.name());
+        BookingEntity entity = new BookingEntity(dto.getVisitorEmail(), dto.getVisitorFullName(), dto.getArrivalDate(), dto.getDepartureDate(), BookingStatus.RESERVED.name());
+        entity.setSiteId(dto.getSiteId());
+        entity.setParent(true);
+        return entity;
     }
 }
@@ -0,0 +1,344 @@
+package com.upgrade.interview.campsite.repository;
+
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.utils.BookingStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the reservations, in a directory holding:
+ * <ul>
+ *     <li>{@code snapshot}: every reservation at the time of the snapshot, along with its generation</li>
+ *     <li>{@code journal-<generation>}: the records appended since the snapshot of this generation, memory-mapped</li>
+ * </ul>
+ * A record is either the whole state of a reservation or the removal of one, framed by its length and checked by a
+ * CRC32, so a record torn by a crash ends the replay instead of corrupting the state. The journal file is mapped with
+ * a fixed size, remapped twice as large when full, and zero-filled beyond its last record.
+ * Not thread-safe: the caller serializes the appends.
+ */
+class BookingJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookingJournal.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x43534e50;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    // length + crc around the payload
+    private static final int FRAME_SIZE = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long recordsSinceSnapshot;
+
+    BookingJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * One change of the reservations: the new state of a reservation, or its removal when the booking is null.
+     */
+    static final class Record {
+
+        private final long id;
+        private final BookingEntity booking;
+
+        private Record(long id, BookingEntity booking) {
+            this.id = id;
+            this.booking = booking;
+        }
+
+        static Record put(BookingEntity booking) {
+            return new Record(booking.getId(), booking);
+        }
+
+        static Record remove(long id) {
+            return new Record(id, null);
+        }
+
+        long getId() {
+            return id;
+        }
+
+        BookingEntity getBooking() {
+            return booking;
+        }
+    }
+
+    /**
+     * Loads the latest snapshot then replays the journal of its generation, up to its last complete record, and
+     * opens the journal for the appends.
+     *
+     * @param state receives the reservations of the snapshot then the records of the journal, in order
+     * @return the next identifier recorded in the snapshot, 1 if there is no snapshot yet
+     */
+    long recover(Consumer<Record> state) {
+        try {
+            Files.createDirectories(directory);
+            long nextId = 1;
+            Path snapshot = directory.resolve("snapshot");
+            if (Files.exists(snapshot)) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+                    if (input.readInt() != SNAPSHOT_MAGIC) {
+                        throw new IOException("Not a booking snapshot: " + snapshot);
+                    }
+                    generation = input.readLong();
+                    nextId = input.readLong();
+                    long count = input.readLong();
+                    for (long i = 0; i < count; i++) {
+                        state.accept(Record.put(readBooking(input)));
+                    }
+                }
+            }
+
+            open(generation);
+            long replayed = 0;
+            Record record;
+            while ((record = next()) != null) {
+                state.accept(record);
+                replayed++;
+            }
+            recordsSinceSnapshot = replayed;
+            LOGGER.info("Booking journal recovered from {}: generation {}, {} records replayed", directory, generation, replayed);
+            return nextId;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    void append(List<Record> records) {
+        for (Record record : records) {
+            byte[] payload = encode(record);
+            ensureCapacity(FRAME_SIZE + payload.length);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        }
+        recordsSinceSnapshot += records.size();
+    }
+
+    /**
+     * Flushes the appended records to the storage device.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    long recordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    /**
+     * Writes the reservations to a new snapshot, atomically replacing the previous one, then starts an empty journal
+     * for the new generation and deletes the previous journal.
+     */
+    void snapshot(Collection<BookingEntity> bookings, long nextId) {
+        try {
+            long next = generation + 1;
+            Path temporary = directory.resolve("snapshot.tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(SNAPSHOT_MAGIC);
+                output.writeLong(next);
+                output.writeLong(nextId);
+                output.writeLong(bookings.size());
+                for (BookingEntity booking : bookings) {
+                    writeBooking(output, booking);
+                }
+            }
+            try (FileChannel snapshotChannel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                snapshotChannel.force(true);
+            }
+            Files.move(temporary, directory.resolve("snapshot"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            long previous = generation;
+            channel.close();
+            open(next);
+            Files.deleteIfExists(journalFile(previous));
+            recordsSinceSnapshot = 0;
+            LOGGER.info("Booking snapshot of generation {} written with {} reservations", next, bookings.size());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void open(long generation) throws IOException {
+        this.generation = generation;
+        this.channel = FileChannel.open(journalFile(generation), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+    }
+
+    private Path journalFile(long generation) {
+        return directory.resolve("journal-" + generation);
+    }
+
+    /**
+     * @return the record at the position of the buffer, null at the end of the journal or on a torn record,
+     * the position being left at the start of the record
+     */
+    private Record next() {
+        int start = buffer.position();
+        try {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                buffer.position(start);
+                return null;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt()) {
+                LOGGER.error("Torn record at position {} of the booking journal, ignored with the following ones", start);
+                buffer.position(start);
+                return null;
+            }
+            return decode(ByteBuffer.wrap(payload));
+        } catch (BufferUnderflowException exception) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.remaining() >= size) {
+            return;
+        }
+
+        try {
+            int position = buffer.position();
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) position + size);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Booking journal full, a snapshot is due");
+            }
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            buffer.position(position);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static byte[] encode(Record record) {
+        if (record.booking == null) {
+            return ByteBuffer.allocate(1 + Long.BYTES).put(REMOVE).putLong(record.id).array();
+        }
+
+        byte[] email = bytes(record.booking.getVisitorEmail());
+        byte[] name = bytes(record.booking.getVisitorFullName());
+        return ByteBuffer.allocate(1 + Long.BYTES * 4 + Integer.BYTES * 2 + email.length + name.length)
+                .put(PUT)
+                .putLong(record.id)
+                .putLong(record.booking.getSiteId())
+                .putLong(record.booking.getArrivalDate().toEpochDay())
+                .putLong(record.booking.getDepartureDate().toEpochDay())
+                .putInt(record.booking.getVisitorEmail() != null ? email.length : -1).put(email)
+                .putInt(record.booking.getVisitorFullName() != null ? name.length : -1).put(name)
+                .array();
+    }
+
+    private static Record decode(ByteBuffer payload) {
+        byte type = payload.get();
+        long id = payload.getLong();
+        if (type == REMOVE) {
+            return Record.remove(id);
+        }
+
+        long siteId = payload.getLong();
+        LocalDate arrivalDate = LocalDate.ofEpochDay(payload.getLong());
+        LocalDate departureDate = LocalDate.ofEpochDay(payload.getLong());
+        String email = string(payload);
+        String name = string(payload);
+        return Record.put(booking(id, siteId, email, name, arrivalDate, departureDate));
+    }
+
+    private static void writeBooking(DataOutputStream output, BookingEntity booking) throws IOException {
+        output.writeLong(booking.getId());
+        output.writeLong(booking.getSiteId());
+        output.writeLong(booking.getArrivalDate().toEpochDay());
+        output.writeLong(booking.getDepartureDate().toEpochDay());
+        writeString(output, booking.getVisitorEmail());
+        writeString(output, booking.getVisitorFullName());
+    }
+
+    private static BookingEntity readBooking(DataInputStream input) throws IOException {
+        long id = input.readLong();
+        long siteId = input.readLong();
+        LocalDate arrivalDate = LocalDate.ofEpochDay(input.readLong());
+        LocalDate departureDate = LocalDate.ofEpochDay(input.readLong());
+        String email = readString(input);
+        String name = readString(input);
+        return booking(id, siteId, email, name, arrivalDate, departureDate);
+    }
+
+    static BookingEntity booking(long id, long siteId, String email, String name, LocalDate arrivalDate, LocalDate departureDate) {
+        BookingEntity booking = new BookingEntity(email, name, arrivalDate, departureDate, BookingStatus.RESERVED.name());
+        booking.setId(id);
+        booking.setParentId(id);
+        booking.setParent(true);
+        booking.setSiteId(siteId);
+        return booking;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static String string(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        payload.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        try {
+            return input.readBoolean() ? input.readUTF() : null;
+        } catch (EOFException exception) {
+            throw new IOException("Truncated booking snapshot", exception);
+        }
+    }
+}
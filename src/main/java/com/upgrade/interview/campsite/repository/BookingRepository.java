@@ -1,38 +1,185 @@
 package com.upgrade.interview.campsite.repository;
 
 import com.upgrade.interview.campsite.entity.BookingEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface BookingRepository extends JpaRepository<BookingEntity, Long> {
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
 
+public interface BookingRepository extends JpaRepository<BookingEntity, Long> {
 
+    /**
+     * Bookings of the site with at least one night in [from, to), range scan on idx_booking_arrival.
+     * The overlap queries all take earliestArrival, the day before the arrival of the longest stay still overlapping
+     * from (from minus the maximum stay), so that the scan is bounded on both sides and its cost does not grow with the
+     * past bookings kept as history.
+     */
     @Query(value = "SELECT * FROM booking b " +
-            "   WHERE b.status = 'RESERVED' " +
-            "   AND b.parent_id = b.id " +
-            "   AND (b.arrival_date BETWEEN ?1 AND ?2 " +
-            "   OR b.departure_date BETWEEN ?3 AND ?4 " +
-            "   OR b.arrival_date < ?5 AND b.departure_date > ?6)",
+            "   WHERE b.site_id = :siteId " +
+            "   AND b.is_parent = TRUE " +
+            "   AND b.status = 'RESERVED' " +
+            "   AND b.arrival_date > :earliestArrival " +
+            "   AND b.arrival_date < :to " +
+            "   AND b.departure_date > :from",
             nativeQuery = true)
-    List<BookingEntity> findReservedBookings(LocalDate arrivalDateStart, LocalDate arrivalDateEnd,
-                                             LocalDate departureDateStart, LocalDate departureDateEnd,
-                                             LocalDate from, LocalDate to);
+    List<BookingEntity> findReservedBookings(@Param("siteId") Long siteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                             @Param("earliestArrival") LocalDate earliestArrival);
+
+    /**
+     * Bookings of the site with at least one night in [from, to), by arrival date, read through a forward-only cursor.
+     * The stream has to be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = FETCH_SIZE, value = "500"),
+            @QueryHint(name = READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM BookingEntity b " +
+            "   WHERE b.siteId = :siteId " +
+            "   AND b.parent = TRUE " +
+            "   AND b.status = 'RESERVED' " +
+            "   AND b.arrivalDate > :earliestArrival " +
+            "   AND b.arrivalDate < :to " +
+            "   AND b.departureDate > :from " +
+            "   ORDER BY b.arrivalDate, b.id")
+    Stream<BookingEntity> streamReservedBookings(@Param("siteId") Long siteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                 @Param("earliestArrival") LocalDate earliestArrival);
+
+    /**
+     * First page of the bookings of the site with at least one night in [from, to), by arrival date then id,
+     * the pageable only carries the size of the page.
+     */
+    @Query("SELECT b FROM BookingEntity b " +
+            "   WHERE b.siteId = :siteId " +
+            "   AND b.parent = TRUE " +
+            "   AND b.status = 'RESERVED' " +
+            "   AND b.arrivalDate > :earliestArrival " +
+            "   AND b.arrivalDate < :to " +
+            "   AND b.departureDate > :from " +
+            "   ORDER BY b.arrivalDate, b.id")
+    List<BookingEntity> findReservedBookingsPage(@Param("siteId") Long siteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                 @Param("earliestArrival") LocalDate earliestArrival, Pageable page);
 
+    /**
+     * Next page of the bookings of the site with at least one night in [from, to), the ones sorted after the key
+     * (afterArrivalDate, afterId): the scan of idx_booking_arrival starts at the key instead of skipping the previous pages.
+     */
+    @Query("SELECT b FROM BookingEntity b " +
+            "   WHERE b.siteId = :siteId " +
+            "   AND b.parent = TRUE " +
+            "   AND b.status = 'RESERVED' " +
+            "   AND b.arrivalDate > :earliestArrival " +
+            "   AND b.arrivalDate < :to " +
+            "   AND b.departureDate > :from " +
+            "   AND b.arrivalDate >= :afterArrivalDate " +
+            "   AND (b.arrivalDate > :afterArrivalDate OR b.id > :afterId) " +
+            "   ORDER BY b.arrivalDate, b.id")
+    List<BookingEntity> findReservedBookingsPageAfter(@Param("siteId") Long siteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                      @Param("earliestArrival") LocalDate earliestArrival, @Param("afterArrivalDate") LocalDate afterArrivalDate, @Param("afterId") Long afterId, Pageable page);
 
+    /**
+     * Bookings of all the sites, range scan on idx_booking_departure.
+     */
     @Query(value = "SELECT * FROM booking b " +
-            "   WHERE b.status = 'FREE' " +
-            "   AND b.arrival_date >= ?1 " +
-            "   AND b.departure_date <= ?2",
+            "   WHERE b.is_parent = TRUE " +
+            "   AND b.status = 'RESERVED' " +
+            "   AND b.departure_date > :date",
             nativeQuery = true)
-    List<BookingEntity> findFreeBookings(LocalDate arrivalDate, LocalDate departureDate);
+    List<BookingEntity> findReservedBookingsDepartingAfter(@Param("date") LocalDate date);
+
+    @Query(value = "SELECT COUNT(*) FROM booking b " +
+            "   WHERE b.site_id = :siteId " +
+            "   AND b.is_parent = TRUE " +
+            "   AND b.status = 'RESERVED' " +
+            "   AND b.arrival_date > :earliestArrival " +
+            "   AND b.arrival_date < :departureDate " +
+            "   AND b.departure_date > :arrivalDate",
+            nativeQuery = true)
+    long countOverlappingReservations(@Param("siteId") Long siteId, @Param("arrivalDate") LocalDate arrivalDate, @Param("departureDate") LocalDate departureDate,
+                                      @Param("earliestArrival") LocalDate earliestArrival);
+
+    @Query(value = "SELECT COUNT(*) FROM booking b " +
+            "   WHERE b.site_id = :siteId " +
+            "   AND b.is_parent = TRUE " +
+            "   AND b.status = 'RESERVED' " +
+            "   AND b.arrival_date > :earliestArrival " +
+            "   AND b.arrival_date < :departureDate " +
+            "   AND b.departure_date > :arrivalDate " +
+            "   AND b.id <> :excludedId",
+            nativeQuery = true)
+    long countOtherOverlappingReservations(@Param("siteId") Long siteId, @Param("arrivalDate") LocalDate arrivalDate, @Param("departureDate") LocalDate departureDate,
+                                           @Param("earliestArrival") LocalDate earliestArrival, @Param("excludedId") Long excludedId);
+
+    List<BookingEntity> findBySiteIdAndArrivalDateGreaterThanEqualAndDepartureDateLessThanEqual(Long siteId, LocalDate arrivalDate, LocalDate departureDate);
+
+    /**
+     * Claims the FREE nights of the site between the given dates for the given booking.
+     *
+     * @return the number of nights claimed, less than the number of requested nights if one of them is not FREE anymore
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BookingEntity b " +
+            "   SET b.status = 'RESERVED', b.parentId = :parentId, b.visitorEmail = :visitorEmail, b.visitorFullName = :visitorFullName, b.version = b.version + 1 " +
+            "   WHERE b.siteId = :siteId " +
+            "   AND b.parent = FALSE " +
+            "   AND b.status = 'FREE' " +
+            "   AND b.arrivalDate >= :arrivalDate " +
+            "   AND b.departureDate <= :departureDate")
+    int claimFreeNights(@Param("siteId") Long siteId, @Param("arrivalDate") LocalDate arrivalDate, @Param("departureDate") LocalDate departureDate, @Param("parentId") Long parentId,
+                        @Param("visitorEmail") String visitorEmail, @Param("visitorFullName") String visitorFullName);
+
+    /**
+     * Frees the night slots of the given booking, the persistence context is cleared so that no stale slot is read afterwards.
+     *
+     * @return the number of nights freed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BookingEntity b " +
+            "   SET b.status = 'FREE', b.parentId = NULL, b.visitorEmail = NULL, b.visitorFullName = NULL, b.version = b.version + 1 " +
+            "   WHERE b.parent = FALSE " +
+            "   AND b.parentId = :parentId")
+    int releaseNights(@Param("parentId") Long parentId);
+
+    /**
+     * Frees the night slots of the given booking outside of [arrivalDate, departureDate).
+     *
+     * @return the number of nights freed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BookingEntity b " +
+            "   SET b.status = 'FREE', b.parentId = NULL, b.visitorEmail = NULL, b.visitorFullName = NULL, b.version = b.version + 1 " +
+            "   WHERE b.parent = FALSE " +
+            "   AND b.parentId = :parentId " +
+            "   AND (b.arrivalDate < :arrivalDate OR b.departureDate > :departureDate)")
+    int releaseNightsOutside(@Param("parentId") Long parentId, @Param("arrivalDate") LocalDate arrivalDate, @Param("departureDate") LocalDate departureDate);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM BookingEntity b " +
+            "   WHERE b.parent = TRUE " +
+            "   AND b.id = :id")
+    int deleteBooking(@Param("id") Long id);
 
-    List<BookingEntity> findByArrivalDateGreaterThanEqualAndDepartureDateLessThanEqual(@Param("arrival_date") LocalDate arrivalDate,
-                                                                                               @Param("departure_date") LocalDate departureDate);
+    /**
+     * Removes the night slots of all the sites, free or not, before the given date. The bookings themselves are kept.
+     */
+    @Modifying
+    @Query("DELETE FROM BookingEntity b " +
+            "   WHERE b.parent = FALSE " +
+            "   AND b.departureDate <= :date")
+    int deletePastSlots(@Param("date") LocalDate date);
 
+    /**
+     * The booking and its night slots. Only used by the tests, to look at the rows behind a booking.
+     */
     List<BookingEntity> findByIdOrParentId(@Param("id") Long id, @Param("parent_id") Long parentId);
 
 
@@ -0,0 +1,82 @@
+package com.upgrade.interview.campsite.repository;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage of the campsite reservations. The implementation is selected with {@code campsite.storage.mode}:
+ * <ul>
+ *     <li>{@code slots} (default): one row per night, flipped between FREE and RESERVED, plus a parent row per booking</li>
+ *     <li>{@code intervals}: one row per reservation, free nights being the gaps between them</li>
+ *     <li>{@code journal}: in-memory sorted maps of the reservations per site, made durable by the {@link BookingJournal}</li>
+ * </ul>
+ * Every reservation belongs to one site and the queries of a site only range over its own reservations (site_id leads
+ * the indexes of the database modes, the journal mode keeps one map per site).
+ * Callers are expected to run the write operations inside a transaction.
+ */
+public interface BookingStore {
+
+    /**
+     * @return the reservations of the site overlapping the given date range
+     */
+    List<BookingEntity> findReservedBookings(long siteId, LocalDate from, LocalDate to);
+
+    /**
+     * The reservations of the site overlapping the given date range, by arrival date, read one at a time: the stream
+     * has to be consumed and closed inside a transaction and the reservations read are not kept by the persistence context.
+     */
+    Stream<BookingEntity> streamReservedBookings(long siteId, LocalDate from, LocalDate to);
+
+    /**
+     * One page of the reservations of the site overlapping the given date range, sorted by arrival date then identifier.
+     *
+     * @param afterArrivalDate arrival date of the last reservation of the previous page, null for the first page
+     * @param afterId          identifier of the last reservation of the previous page, null for the first page
+     * @return at most limit reservations sorted after (afterArrivalDate, afterId)
+     */
+    List<BookingEntity> findReservedBookingsPage(long siteId, LocalDate from, LocalDate to, LocalDate afterArrivalDate, Long afterId, int limit);
+
+    /**
+     * @return the reservations of all the sites with at least one night after the given date
+     */
+    List<BookingEntity> findReservedBookingsDepartingAfter(LocalDate date);
+
+    Optional<BookingEntity> findBooking(Long bookingUID);
+
+    /**
+     * Reserves the nights of the booking on its site, other sites are never read nor locked.
+     *
+     * @return the unique identifier of the reservation
+     * @throws com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException if one of the nights is already reserved
+     */
+    Long reserve(BookingDTO booking);
+
+    /**
+     * Reserves all the bookings, which are expected not to overlap each other, in the current transaction.
+     *
+     * @return the unique identifiers of the reservations, in the order of the bookings
+     * @throws com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException if one of the nights is already reserved
+     */
+    List<Long> reserveAll(List<BookingDTO> bookings);
+
+    /**
+     * Moves the reservation to the site and dates of the booking, keeping its identifier. Its own nights are not
+     * a conflict: only the nights leaving the range are freed and only those entering it are reserved.
+     *
+     * @return the reservation as it was before the move
+     * @throws com.upgrade.interview.campsite.exception.InvalidInputException if there is no reservation with this identifier
+     * @throws com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException if one of the new nights is already reserved
+     */
+    BookingEntity move(Long bookingUID, BookingDTO booking);
+
+    /**
+     * @return the cancelled reservation
+     * @throws com.upgrade.interview.campsite.exception.InvalidInputException if there is no reservation with this identifier
+     */
+    BookingEntity release(Long bookingUID);
+}
@@ -0,0 +1,205 @@
+package com.upgrade.interview.campsite.repository;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import com.upgrade.interview.campsite.mapper.BookingMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps one row per reservation: a booking costs a single insert and a cancellation a single delete.
+ * The overlap check and the insert are serialized per site until the transaction completes, so two concurrent
+ * reservations of a site cannot both pass the check (single node deployment).
+ */
+@Component
+@ConditionalOnProperty(name = "campsite.storage.mode", havingValue = "intervals")
+public class IntervalBookingStore implements BookingStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntervalBookingStore.class);
+
+    private final BookingRepository bookingRepository;
+    private final BookingMapper bookingMapper;
+    private final EntityManager entityManager;
+    private final int maxDays;
+    private final ConcurrentMap<Long, ReentrantLock> reservationLocks = new ConcurrentHashMap<>();
+
+    public IntervalBookingStore(BookingRepository bookingRepository, BookingMapper bookingMapper, EntityManager entityManager,
+                                @Value("${campsite.reservation.max_days}") int maxDays) {
+        this.bookingRepository = bookingRepository;
+        this.bookingMapper = bookingMapper;
+        this.entityManager = entityManager;
+        this.maxDays = maxDays;
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookings(long siteId, LocalDate from, LocalDate to) {
+        return bookingRepository.findReservedBookings(siteId, from, to, earliestArrival(from));
+    }
+
+    @Override
+    public Stream<BookingEntity> streamReservedBookings(long siteId, LocalDate from, LocalDate to) {
+        return bookingRepository.streamReservedBookings(siteId, from, to, earliestArrival(from))
+                .map(booking -> {
+                    entityManager.detach(booking);
+                    return booking;
+                });
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookingsPage(long siteId, LocalDate from, LocalDate to, LocalDate afterArrivalDate, Long afterId, int limit) {
+        if (afterArrivalDate == null) {
+            return bookingRepository.findReservedBookingsPage(siteId, from, to, earliestArrival(from), PageRequest.of(0, limit));
+        }
+        return bookingRepository.findReservedBookingsPageAfter(siteId, from, to, earliestArrival(from), afterArrivalDate, afterId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * @return the day before the earliest arrival of a stay overlapping the given day, no stay being longer than max_days
+     */
+    private LocalDate earliestArrival(LocalDate from) {
+        return from.minusDays(maxDays);
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookingsDepartingAfter(LocalDate date) {
+        return bookingRepository.findReservedBookingsDepartingAfter(date);
+    }
+
+    @Override
+    public Optional<BookingEntity> findBooking(Long bookingUID) {
+        return bookingRepository.findById(bookingUID).filter(BookingEntity::isParent);
+    }
+
+    @Override
+    public Long reserve(BookingDTO booking) {
+        lockUntilCompletion(booking.getSiteId());
+        if (bookingRepository.countOverlappingReservations(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(),
+                earliestArrival(booking.getArrivalDate())) > 0) {
+            LOGGER.error("Invalid booking dates: site {} already booked between {} and {}", booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate());
+            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+        }
+
+        BookingEntity entity = bookingRepository.save(bookingMapper.dtoToEntity(booking));
+        entity.setParentId(entity.getId());
+        return entity.getId();
+    }
+
+    /**
+     * Locks the sites of the batch in ascending order and checks each of them with a single query.
+     */
+    @Override
+    public List<Long> reserveAll(List<BookingDTO> bookings) {
+        Map<Long, List<BookingDTO>> bookingsBySite = bookings.stream()
+                .collect(Collectors.groupingBy(BookingDTO::getSiteId, TreeMap::new, Collectors.toList()));
+        bookingsBySite.forEach((siteId, siteBookings) -> {
+            lockUntilCompletion(siteId);
+            LocalDate from = siteBookings.stream().map(BookingDTO::getArrivalDate).min(Comparator.naturalOrder()).get();
+            LocalDate to = siteBookings.stream().map(BookingDTO::getDepartureDate).max(Comparator.naturalOrder()).get();
+            List<BookingEntity> reserved = bookingRepository.findReservedBookings(siteId, from, to, earliestArrival(from));
+            siteBookings.stream()
+                    .filter(booking -> reserved.stream().anyMatch(entity -> entity.getArrivalDate().isBefore(booking.getDepartureDate())
+                            && entity.getDepartureDate().isAfter(booking.getArrivalDate())))
+                    .findFirst()
+                    .ifPresent(booking -> {
+                        LOGGER.error("Invalid booking dates: site {} already booked between {} and {}", booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate());
+                        throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+                    });
+        });
+
+        List<BookingEntity> entities = bookingRepository.saveAll(bookings.stream()
+                .map(bookingMapper::dtoToEntity)
+                .collect(Collectors.toList()));
+        entities.forEach(entity -> entity.setParentId(entity.getId()));
+        return entities.stream()
+                .map(BookingEntity::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public BookingEntity move(Long bookingUID, BookingDTO booking) {
+        lockUntilCompletion(booking.getSiteId());
+        BookingEntity entity = bookingRepository.findById(bookingUID)
+                .filter(BookingEntity::isParent)
+                .orElseThrow(() -> {
+                    LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
+                    return new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+                });
+        if (bookingRepository.countOtherOverlappingReservations(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(),
+                earliestArrival(booking.getArrivalDate()), bookingUID) > 0) {
+            LOGGER.error("Invalid booking dates: site {} already booked between {} and {}", booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate());
+            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+        }
+
+        BookingEntity previous = new BookingEntity(entity.getVisitorEmail(), entity.getVisitorFullName(), entity.getArrivalDate(), entity.getDepartureDate(), entity.getStatus());
+        previous.setId(entity.getId());
+        previous.setSiteId(entity.getSiteId());
+        entity.setSiteId(booking.getSiteId());
+        entity.setArrivalDate(booking.getArrivalDate());
+        entity.setDepartureDate(booking.getDepartureDate());
+        if (booking.getVisitorEmail() != null) {
+            entity.setVisitorEmail(booking.getVisitorEmail());
+        }
+        if (booking.getVisitorFullName() != null) {
+            entity.setVisitorFullName(booking.getVisitorFullName());
+        }
+        return previous;
+    }
+
+    @Override
+    public BookingEntity release(Long bookingUID) {
+        BookingEntity booking = bookingRepository.findById(bookingUID)
+                .filter(BookingEntity::isParent)
+                .orElseThrow(() -> {
+                    LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
+                    return new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+                });
+        deleteBooking(bookingUID);
+        return booking;
+    }
+
+    private void lockUntilCompletion(Long siteId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Reservations must be made inside a transaction");
+        }
+
+        ReentrantLock reservationLock = reservationLocks.computeIfAbsent(siteId, site -> new ReentrantLock(true));
+        reservationLock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reservationLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Deletes the booking, failing if a concurrent cancellation already did: both would otherwise free its nights.
+     */
+    private void deleteBooking(Long bookingUID) {
+        if (bookingRepository.deleteBooking(bookingUID) == 0) {
+            LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
+            throw new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.upgrade.interview.campsite.repository;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the reservations in memory, one sorted map by arrival date per site, and makes them durable with an
+ * append-only, memory-mapped {@link BookingJournal} instead of the database: a change is one sequential append,
+ * written when the surrounding transaction commits. A snapshot is taken every {@code campsite.journal.snapshot_every}
+ * records, so a restart only loads the snapshot and replays the records appended since.
+ * The writes are serialized until the transaction completes, their changes being applied at once and undone if the
+ * transaction rolls back: a reader may see a change that is about to be rolled back (single node deployment).
+ */
+@Component
+@ConditionalOnProperty(name = "campsite.storage.mode", havingValue = "journal")
+public class JournalBookingStore implements BookingStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalBookingStore.class);
+
+    private final BookingJournal journal;
+    private final boolean forceOnCommit;
+    private final long snapshotEvery;
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    private final ConcurrentMap<Long, BookingEntity> bookings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, NavigableMap<LocalDate, BookingEntity>> siteBookings = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    public JournalBookingStore(@Value("${campsite.journal.dir}") String directory,
+                               @Value("${campsite.journal.segment_size}") int segmentSize,
+                               @Value("${campsite.journal.snapshot_every}") long snapshotEvery,
+                               @Value("${campsite.journal.force_on_commit}") boolean forceOnCommit) {
+        this.journal = new BookingJournal(Paths.get(directory), segmentSize);
+        this.snapshotEvery = snapshotEvery;
+        this.forceOnCommit = forceOnCommit;
+        long started = System.nanoTime();
+        // an identifier is never given twice, even that of a reservation cancelled since the snapshot
+        long snapshotNextId = journal.recover(record -> {
+            apply(record);
+            nextId.accumulateAndGet(record.getId() + 1, Math::max);
+        });
+        nextId.accumulateAndGet(snapshotNextId, Math::max);
+        LOGGER.info("{} reservations loaded in {} ms", bookings.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookings(long siteId, LocalDate from, LocalDate to) {
+        return overlapping(siteId, from, to).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<BookingEntity> streamReservedBookings(long siteId, LocalDate from, LocalDate to) {
+        return overlapping(siteId, from, to);
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookingsPage(long siteId, LocalDate from, LocalDate to, LocalDate afterArrivalDate, Long afterId, int limit) {
+        return overlapping(siteId, from, to)
+                .filter(booking -> afterArrivalDate == null || booking.getArrivalDate().isAfter(afterArrivalDate)
+                        || (booking.getArrivalDate().isEqual(afterArrivalDate) && booking.getId() > afterId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookingsDepartingAfter(LocalDate date) {
+        return bookings.values().stream()
+                .filter(booking -> booking.getDepartureDate().isAfter(date))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<BookingEntity> findBooking(Long bookingUID) {
+        return Optional.ofNullable(bookings.get(bookingUID));
+    }
+
+    @Override
+    public Long reserve(BookingDTO booking) {
+        Changes changes = lockUntilCompletion();
+        checkNotReserved(booking, null);
+        BookingEntity entity = BookingJournal.booking(nextId.getAndIncrement(), booking.getSiteId(), booking.getVisitorEmail(), booking.getVisitorFullName(),
+                booking.getArrivalDate(), booking.getDepartureDate());
+        changes.apply(BookingJournal.Record.put(entity), BookingJournal.Record.remove(entity.getId()));
+        return entity.getId();
+    }
+
+    @Override
+    public List<Long> reserveAll(List<BookingDTO> bookings) {
+        return bookings.stream()
+                .map(this::reserve)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public BookingEntity move(Long bookingUID, BookingDTO booking) {
+        Changes changes = lockUntilCompletion();
+        BookingEntity previous = existing(bookingUID);
+        checkNotReserved(booking, bookingUID);
+        BookingEntity moved = BookingJournal.booking(bookingUID, booking.getSiteId(),
+                booking.getVisitorEmail() != null ? booking.getVisitorEmail() : previous.getVisitorEmail(),
+                booking.getVisitorFullName() != null ? booking.getVisitorFullName() : previous.getVisitorFullName(),
+                booking.getArrivalDate(), booking.getDepartureDate());
+        changes.apply(BookingJournal.Record.put(moved), BookingJournal.Record.put(previous));
+        return previous;
+    }
+
+    @Override
+    public BookingEntity release(Long bookingUID) {
+        Changes changes = lockUntilCompletion();
+        BookingEntity booking = existing(bookingUID);
+        changes.apply(BookingJournal.Record.remove(bookingUID), BookingJournal.Record.put(booking));
+        return booking;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            journal.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The reservations of the site overlapping [from, to) by arrival date: the one arriving before from, if it
+     * overlaps, then those arriving in [from, to).
+     */
+    private Stream<BookingEntity> overlapping(long siteId, LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, BookingEntity> site = siteBookings.get(siteId);
+        if (site == null) {
+            return Stream.empty();
+        }
+
+        Map.Entry<LocalDate, BookingEntity> before = site.lowerEntry(from);
+        Stream<BookingEntity> first = (before != null && before.getValue().getDepartureDate().isAfter(from)) ? Stream.of(before.getValue()) : Stream.empty();
+        return from.isBefore(to) ? Stream.concat(first, site.subMap(from, true, to, false).values().stream()) : first;
+    }
+
+    private void checkNotReserved(BookingDTO booking, Long excludedId) {
+        boolean reserved = overlapping(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate())
+                .anyMatch(entity -> !entity.getId().equals(excludedId));
+        if (reserved) {
+            LOGGER.error("Invalid booking dates: site {} already booked between {} and {}", booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate());
+            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+        }
+    }
+
+    private BookingEntity existing(Long bookingUID) {
+        return findBooking(bookingUID).orElseThrow(() -> {
+            LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
+            return new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+        });
+    }
+
+    private void apply(BookingJournal.Record record) {
+        BookingEntity previous = bookings.remove(record.getId());
+        if (previous != null) {
+            siteBookings.get(previous.getSiteId()).remove(previous.getArrivalDate());
+        }
+        if (record.getBooking() != null) {
+            bookings.put(record.getId(), record.getBooking());
+            siteBookings.computeIfAbsent(record.getBooking().getSiteId(), site -> new ConcurrentSkipListMap<>())
+                    .put(record.getBooking().getArrivalDate(), record.getBooking());
+        }
+    }
+
+    /**
+     * Takes the write lock until the transaction completes, the changes of the transaction being appended to the
+     * journal before it commits.
+     */
+    private Changes lockUntilCompletion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Reservations must be made inside a transaction");
+        }
+
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            writeLock.lock();
+            changes = new Changes();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * The changes of one transaction, with the records undoing them.
+     */
+    private final class Changes implements TransactionSynchronization {
+
+        private final List<BookingJournal.Record> redo = new ArrayList<>();
+        private final List<BookingJournal.Record> undo = new ArrayList<>();
+        private boolean appended;
+
+        private void apply(BookingJournal.Record change, BookingJournal.Record compensation) {
+            JournalBookingStore.this.apply(change);
+            redo.add(change);
+            undo.add(compensation);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            appended = true;
+            journal.append(redo);
+            if (forceOnCommit) {
+                journal.force();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(JournalBookingStore.this);
+            try {
+                if (status != STATUS_COMMITTED) {
+                    Collections.reverse(undo);
+                    undo.forEach(JournalBookingStore.this::apply);
+                    if (appended) {
+                        journal.append(undo);
+                    }
+                } else if (journal.recordsSinceSnapshot() >= snapshotEvery) {
+                    journal.snapshot(new ArrayList<>(bookings.values()), nextId.get());
+                }
+            } catch (RuntimeException exception) {
+                LOGGER.error("Booking journal update failed after completion", exception);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
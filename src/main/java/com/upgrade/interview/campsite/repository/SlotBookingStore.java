@@ -0,0 +1,231 @@
+package com.upgrade.interview.campsite.repository;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import com.upgrade.interview.campsite.mapper.BookingMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Component
+@ConditionalOnProperty(name = "campsite.storage.mode", havingValue = "slots", matchIfMissing = true)
+public class SlotBookingStore implements BookingStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlotBookingStore.class);
+
+    private final BookingRepository bookingRepository;
+    private final BookingMapper bookingMapper;
+    private final EntityManager entityManager;
+    private final int maxDays;
+
+    public SlotBookingStore(BookingRepository bookingRepository, BookingMapper bookingMapper, EntityManager entityManager,
+                            @Value("${campsite.reservation.max_days}") int maxDays) {
+        this.bookingRepository = bookingRepository;
+        this.bookingMapper = bookingMapper;
+        this.entityManager = entityManager;
+        this.maxDays = maxDays;
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookings(long siteId, LocalDate from, LocalDate to) {
+        return bookingRepository.findReservedBookings(siteId, from, to, earliestArrival(from));
+    }
+
+    @Override
+    public Stream<BookingEntity> streamReservedBookings(long siteId, LocalDate from, LocalDate to) {
+        return bookingRepository.streamReservedBookings(siteId, from, to, earliestArrival(from))
+                .map(booking -> {
+                    entityManager.detach(booking);
+                    return booking;
+                });
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookingsPage(long siteId, LocalDate from, LocalDate to, LocalDate afterArrivalDate, Long afterId, int limit) {
+        if (afterArrivalDate == null) {
+            return bookingRepository.findReservedBookingsPage(siteId, from, to, earliestArrival(from), PageRequest.of(0, limit));
+        }
+        return bookingRepository.findReservedBookingsPageAfter(siteId, from, to, earliestArrival(from), afterArrivalDate, afterId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * @return the day before the earliest arrival of a stay overlapping the given day, no stay being longer than max_days
+     */
+    private LocalDate earliestArrival(LocalDate from) {
+        return from.minusDays(maxDays);
+    }
+
+    @Override
+    public List<BookingEntity> findReservedBookingsDepartingAfter(LocalDate date) {
+        return bookingRepository.findReservedBookingsDepartingAfter(date);
+    }
+
+    @Override
+    public Optional<BookingEntity> findBooking(Long bookingUID) {
+        return bookingRepository.findById(bookingUID).filter(BookingEntity::isParent);
+    }
+
+    /**
+     * Inserts the parent row then claims all the nights with a single conditional update: if fewer rows than requested
+     * nights are updated, one of them is not FREE anymore and the exception rolls the whole transaction back.
+     */
+    @Override
+    public Long reserve(BookingDTO booking) {
+        final long nights = ChronoUnit.DAYS.between(booking.getArrivalDate(), booking.getDepartureDate());
+        final BookingEntity parentBooking = this.bookingRepository.save(this.bookingMapper.dtoToEntity(booking));
+        parentBooking.setParentId(parentBooking.getId());
+        try {
+            int claimed = this.bookingRepository.claimFreeNights(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(), parentBooking.getId(),
+                    booking.getVisitorEmail(), booking.getVisitorFullName());
+            if (claimed != nights) {
+                throw alreadyBooked(booking);
+            }
+        } catch (DataIntegrityViolationException sameBookingException) {
+            // the very same date range is already reserved by another parent booking
+            throw alreadyBooked(booking);
+        }
+
+        return parentBooking.getId();
+    }
+
+    /**
+     * Inserts all the parent rows at once then claims the nights of each booking with its conditional update.
+     */
+    @Override
+    public List<Long> reserveAll(List<BookingDTO> bookings) {
+        final List<BookingEntity> parentBookings = this.bookingRepository.saveAll(bookings.stream()
+                .map(this.bookingMapper::dtoToEntity)
+                .collect(Collectors.toList()));
+        // the claims clear the persistence context, the parent rows are completed beforehand
+        parentBookings.forEach(parentBooking -> parentBooking.setParentId(parentBooking.getId()));
+        List<Long> bookingUIDs = new ArrayList<>(bookings.size());
+        for (int i = 0; i < bookings.size(); i++) {
+            BookingDTO booking = bookings.get(i);
+            BookingEntity parentBooking = parentBookings.get(i);
+            try {
+                int claimed = this.bookingRepository.claimFreeNights(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(), parentBooking.getId(),
+                        booking.getVisitorEmail(), booking.getVisitorFullName());
+                if (claimed != ChronoUnit.DAYS.between(booking.getArrivalDate(), booking.getDepartureDate())) {
+                    throw alreadyBooked(booking);
+                }
+            } catch (DataIntegrityViolationException sameBookingException) {
+                throw alreadyBooked(booking);
+            }
+            bookingUIDs.add(parentBooking.getId());
+        }
+        return bookingUIDs;
+    }
+
+    /**
+     * On the same site, frees the nights leaving the range and claims the ones entering it, so that shifting a stay by one
+     * night writes two slots. The parent row is updated last, its version guarding against a concurrent modification.
+     */
+    @Override
+    public BookingEntity move(Long bookingUID, BookingDTO booking) {
+        final BookingEntity parentBooking = findBooking(bookingUID).orElseThrow(() -> {
+            LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
+            return new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+        });
+        final BookingEntity previous = copy(parentBooking);
+        final String visitorEmail = booking.getVisitorEmail() != null ? booking.getVisitorEmail() : parentBooking.getVisitorEmail();
+        final String visitorFullName = booking.getVisitorFullName() != null ? booking.getVisitorFullName() : parentBooking.getVisitorFullName();
+
+        final LocalDate arrivalDate = booking.getArrivalDate();
+        final LocalDate departureDate = booking.getDepartureDate();
+        try {
+            if (booking.getSiteId().equals(previous.getSiteId())) {
+                this.bookingRepository.releaseNightsOutside(bookingUID, arrivalDate, departureDate);
+                claim(booking, arrivalDate, min(departureDate, previous.getArrivalDate()), bookingUID, visitorEmail, visitorFullName);
+                claim(booking, max(arrivalDate, previous.getDepartureDate()), departureDate, bookingUID, visitorEmail, visitorFullName);
+            } else {
+                this.bookingRepository.releaseNights(bookingUID);
+                claim(booking, arrivalDate, departureDate, bookingUID, visitorEmail, visitorFullName);
+            }
+
+            parentBooking.setSiteId(booking.getSiteId());
+            parentBooking.setArrivalDate(arrivalDate);
+            parentBooking.setDepartureDate(departureDate);
+            parentBooking.setVisitorEmail(visitorEmail);
+            parentBooking.setVisitorFullName(visitorFullName);
+            this.bookingRepository.saveAndFlush(parentBooking);
+        } catch (DataIntegrityViolationException sameBookingException) {
+            throw alreadyBooked(booking);
+        }
+        return previous;
+    }
+
+    /**
+     * Claims the nights [from, to) for the booking, nothing if the range is empty.
+     */
+    private void claim(BookingDTO booking, LocalDate from, LocalDate to, Long parentId, String visitorEmail, String visitorFullName) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+
+        int claimed = this.bookingRepository.claimFreeNights(booking.getSiteId(), from, to, parentId, visitorEmail, visitorFullName);
+        if (claimed != ChronoUnit.DAYS.between(from, to)) {
+            throw alreadyBooked(booking);
+        }
+    }
+
+    private static LocalDate min(LocalDate first, LocalDate second) {
+        return first.isBefore(second) ? first : second;
+    }
+
+    private static LocalDate max(LocalDate first, LocalDate second) {
+        return first.isAfter(second) ? first : second;
+    }
+
+    private static BookingEntity copy(BookingEntity booking) {
+        BookingEntity copy = new BookingEntity(booking.getVisitorEmail(), booking.getVisitorFullName(), booking.getArrivalDate(), booking.getDepartureDate(), booking.getStatus());
+        copy.setId(booking.getId());
+        copy.setSiteId(booking.getSiteId());
+        copy.setParentId(booking.getParentId());
+        copy.setParent(booking.isParent());
+        return copy;
+    }
+
+    /**
+     * Deletes the parent row and frees the nights with one bulk update on parent_id, whatever the length of the stay.
+     */
+    @Override
+    public BookingEntity release(Long bookingUID) {
+        BookingEntity parentBooking = findBooking(bookingUID).orElseThrow(() -> {
+            LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
+            return new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+        });
+        deleteBooking(bookingUID);
+        this.bookingRepository.releaseNights(bookingUID);
+        return parentBooking;
+    }
+
+    private CampsiteAlreadyBookedException alreadyBooked(BookingDTO booking) {
+        LOGGER.error("Invalid booking dates: site {} already booked between {} and {}", booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate());
+        return new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+    }
+
+    /**
+     * Deletes the booking, failing if a concurrent cancellation already did: both would otherwise free its nights.
+     */
+    private void deleteBooking(Long bookingUID) {
+        if (this.bookingRepository.deleteBooking(bookingUID) == 0) {
+            LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
+            throw new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+        }
+    }
+}
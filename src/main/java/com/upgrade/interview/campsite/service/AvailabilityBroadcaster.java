@@ -0,0 +1,161 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.AvailabilityChangeDTO;
+import com.upgrade.interview.campsite.event.CalendarChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the committed calendar changes to the server-sent events subscribers.
+ * The committing thread only offers the change to the bounded buffer of each subscriber
+ * ({@code campsite.sse.buffer_size}), the buffers being drained by a small pool of sender threads.
+ * A subscriber whose buffer is full is too slow: it is dropped instead of stalling the writers.
+ */
+@Component
+public class AvailabilityBroadcaster {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AvailabilityBroadcaster.class);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService senders;
+    private final SiteRegistry siteRegistry;
+    private final Counter dropped;
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    public AvailabilityBroadcaster(SiteRegistry siteRegistry, MeterRegistry meterRegistry,
+                                   @Value("${campsite.sse.buffer_size}") int bufferSize,
+                                   @Value("${campsite.sse.timeout_ms}") long timeoutMillis,
+                                   @Value("${campsite.sse.sender_threads}") int senderThreads) {
+        this.siteRegistry = siteRegistry;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "availability-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = meterRegistry.counter("campsite.sse.dropped");
+        meterRegistry.gaugeCollectionSize("campsite.sse.subscribers", Tags.empty(), subscribers);
+    }
+
+    /**
+     * @param siteId the site to follow, all the sites if none
+     */
+    public SseEmitter subscribe(Long siteId) {
+        return subscribe(siteId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(Long siteId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(siteId != null ? siteRegistry.resolve(siteId) : null, emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        LOGGER.info("New availability subscriber SiteId={}, {} subscribers", siteId, subscribers.size());
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCalendarChanged(CalendarChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        String id = String.valueOf(sequence.incrementAndGet());
+        AvailabilityChangeDTO change = new AvailabilityChangeDTO(event.getSiteId(), event.getFrom(), event.getTo(), event.getStatus());
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.follows(event.getSiteId())) {
+                // an event builder is consumed when sent, hence one per subscriber
+                offer(subscriber, SseEmitter.event().id(id).name("availability").data(change));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private void offer(Subscriber subscriber, SseEmitter.SseEventBuilder change) {
+        if (!subscriber.buffer.offer(change)) {
+            LOGGER.warn("Availability subscriber too slow, {} changes pending: dropped", subscriber.buffer.size());
+            drop(subscriber, null);
+            return;
+        }
+
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder change;
+            while ((change = subscriber.buffer.poll()) != null) {
+                try {
+                    subscriber.emitter.send(change);
+                } catch (IOException | IllegalStateException exception) {
+                    drop(subscriber, exception);
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.buffer.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        if (subscribers.remove(subscriber)) {
+            dropped.increment();
+            subscriber.buffer.clear();
+            if (cause != null) {
+                subscriber.emitter.completeWithError(cause);
+            } else {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final Long siteId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(Long siteId, SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> buffer) {
+            this.siteId = siteId;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+
+        private boolean follows(long changedSiteId) {
+            return siteId == null || siteId == changedSiteId;
+        }
+    }
+}
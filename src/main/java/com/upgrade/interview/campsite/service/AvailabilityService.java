@@ -2,52 +2,93 @@ package com.upgrade.interview.campsite.service;
 
 import com.upgrade.interview.campsite.DTO.AvailabilityDTO;
 import com.upgrade.interview.campsite.controller.BookingController;
-import com.upgrade.interview.campsite.entity.BookingEntity;
 import com.upgrade.interview.campsite.exception.InvalidInputException;
-import com.upgrade.interview.campsite.repository.BookingRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class AvailabilityService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookingController.class);
 
-    private final BookingRepository bookingRepository;
+    private final CalendarIndex calendarIndex;
+    private final SiteRegistry siteRegistry;
+    private final BookingMetrics bookingMetrics;
 
-    public AvailabilityService(BookingRepository bookingRepository) {
-        this.bookingRepository = bookingRepository;
+    public AvailabilityService(CalendarIndex calendarIndex, SiteRegistry siteRegistry, BookingMetrics bookingMetrics) {
+        this.calendarIndex = calendarIndex;
+        this.siteRegistry = siteRegistry;
+        this.bookingMetrics = bookingMetrics;
     }
 
-    @Transactional(readOnly = true)
     public List<AvailabilityDTO> availabilities(LocalDate from, LocalDate to) {
-        LocalDate startDate = (from != null) ? from : LocalDate.now();
-        LocalDate defaultEndDateRange = LocalDate.now().plusMonths(1);
-        LocalDate endDate = (to != null) ? to : defaultEndDateRange;
-        if (startDate.isAfter(endDate)) {
-            LOGGER.error("Invalid date range: start date {} is greater than end date {}", from, to);
-            throw new InvalidInputException("Invalid date range: start date is greater than end date");
-        }
+        return availabilities(null, from, to);
+    }
 
-        List<BookingEntity> freeDateRanges = bookingRepository.findFreeBookings(startDate, endDate);
-        List<AvailabilityDTO> availabilities = freeDateRanges.stream()
-                .map(bookingEntity -> new AvailabilityDTO(bookingEntity.getArrivalDate(), bookingEntity.getDepartureDate()))
-                .sorted(Comparator.comparing(AvailabilityDTO::getStart))
-                .collect(Collectors.toList());
-        while (defaultEndDateRange.isBefore(endDate)) {
-            availabilities.add(new AvailabilityDTO(defaultEndDateRange, defaultEndDateRange.plusDays(1)));
-            defaultEndDateRange = defaultEndDateRange.plusDays(1);
-        }
+    public List<AvailabilityDTO> availabilities(Long siteId, LocalDate from, LocalDate to) {
+        long site = siteRegistry.resolve(siteId);
+        checkDateRange(from, to);
+        LocalDate startDate = startDate(from);
+        LocalDate endDate = endDate(to);
 
+        List<AvailabilityDTO> availabilities = bookingMetrics.timed("availabilities", () -> calendarIndex.snapshot(site).freeNights(startDate, endDate));
+        bookingMetrics.queryResults("freeNights", availabilities.size());
         LOGGER.info("{} free days", availabilities.size());
         return availabilities;
     }
 
+    public List<AvailabilityDTO> availabilityRanges(LocalDate from, LocalDate to) {
+        return availabilityRanges(null, from, to);
+    }
+
+    public List<AvailabilityDTO> availabilityRanges(Long siteId, LocalDate from, LocalDate to) {
+        long site = siteRegistry.resolve(siteId);
+        checkDateRange(from, to);
+        LocalDate startDate = startDate(from);
+        LocalDate endDate = endDate(to);
+
+        List<AvailabilityDTO> ranges = bookingMetrics.timed("availabilityRanges", () -> calendarIndex.snapshot(site).freeRanges(startDate, endDate));
+        bookingMetrics.queryResults("freeRanges", ranges.size());
+        LOGGER.info("{} free date ranges", ranges.size());
+        return ranges;
+    }
+
+    /**
+     * @return the sites free for the whole date range
+     */
+    public List<Long> freeSites(LocalDate from, LocalDate to) {
+        checkDateRange(from, to);
+        LocalDate startDate = startDate(from);
+        LocalDate endDate = endDate(to);
+
+        List<Long> sites = bookingMetrics.timed("freeSites", () -> calendarIndex.freeSites(startDate, endDate));
+        bookingMetrics.queryResults("freeSites", sites.size());
+        LOGGER.info("{} free sites", sites.size());
+        return sites;
+    }
+
+    private LocalDate startDate(LocalDate from) {
+        return (from != null) ? from : LocalDate.now();
+    }
+
+    private LocalDate endDate(LocalDate to) {
+        return (to != null) ? to : LocalDate.now().plusMonths(1);
+    }
+
+    /**
+     * @throws InvalidInputException if the date range, defaults applied, starts after it ends
+     */
+    public void checkDateRange(LocalDate from, LocalDate to) {
+        LocalDate startDate = startDate(from);
+        LocalDate endDate = endDate(to);
+        if (startDate.isAfter(endDate)) {
+            LOGGER.error("Invalid date range: start date {} is greater than end date {}", startDate, endDate);
+            throw new InvalidInputException("Invalid date range: start date is greater than end date");
+        }
+    }
+
 }
@@ -0,0 +1,149 @@
+package com.upgrade.interview.campsite.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import com.upgrade.interview.campsite.mapper.BookingMapper;
+import com.upgrade.interview.campsite.repository.BookingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the bookings of a date range straight to the response: the reservations are read through a forward-only
+ * cursor and mapped and written one at a time, so the memory used does not depend on the size of the range.
+ */
+@Service
+public class BookingExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookingExporter.class);
+
+    public enum Format {
+        JSON(MediaType.APPLICATION_JSON), CSV(new MediaType("text", "csv", StandardCharsets.UTF_8));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public static Format of(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            LOGGER.error("Invalid export format {}", format);
+            throw new InvalidInputException("Invalid format: expected one of json, csv");
+        }
+    }
+
+    private static final String CSV_HEADER = "uid,siteId,visitorEmail,visitorFullName,arrivalDate,departureDate";
+
+    private final BookingStore bookingStore;
+    private final BookingMapper bookingMapper;
+    private final SiteRegistry siteRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter jsonWriter;
+    private final BookingMetrics bookingMetrics;
+
+    public BookingExporter(BookingStore bookingStore, BookingMapper bookingMapper, SiteRegistry siteRegistry,
+                           TransactionTemplate transactionTemplate, ObjectMapper objectMapper, BookingMetrics bookingMetrics) {
+        this.bookingStore = bookingStore;
+        this.bookingMapper = bookingMapper;
+        this.siteRegistry = siteRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.jsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.bookingMetrics = bookingMetrics;
+    }
+
+    /**
+     * @return the site to export, checked with the date range before anything is written
+     */
+    public long checkExport(Long siteId, LocalDate from, LocalDate to) {
+        long site = siteRegistry.resolve(siteId);
+        if (from.isAfter(to)) {
+            LOGGER.error("Invalid date range: start date {} is greater than end date {}", from, to);
+            throw new InvalidInputException("Invalid date range: start date is greater than end date");
+        }
+        return site;
+    }
+
+    /**
+     * @return the number of bookings written
+     */
+    public long export(long siteId, LocalDate from, LocalDate to, Format format, OutputStream outputStream) {
+        Long exported = bookingMetrics.timed("export", () -> readOnlyTransaction.execute(status -> {
+            try (Stream<BookingEntity> bookings = bookingStore.streamReservedBookings(siteId, from, to)) {
+                Iterator<BookingDTO> iterator = bookings.map(bookingMapper::entityToDTO).iterator();
+                return format == Format.JSON ? writeJson(iterator, outputStream) : writeCsv(iterator, outputStream);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }));
+        LOGGER.info("{} bookings exported from site {} between {} and {}", exported, siteId, from, to);
+        return exported;
+    }
+
+    private long writeJson(Iterator<BookingDTO> bookings, OutputStream outputStream) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = jsonWriter.getFactory().createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartArray();
+            while (bookings.hasNext()) {
+                jsonWriter.writeValue(generator, bookings.next());
+                count++;
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<BookingDTO> bookings, OutputStream outputStream) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (bookings.hasNext()) {
+            BookingDTO booking = bookings.next();
+            writer.write(booking.getUid() + "," + booking.getSiteId() + "," + csv(booking.getVisitorEmail()) + "," + csv(booking.getVisitorFullName())
+                    + "," + booking.getArrivalDate() + "," + booking.getDepartureDate());
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,107 @@
+package com.upgrade.interview.campsite.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.event.CalendarChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of the GET /bookings results, keyed by site and resolved date range.
+ * Once a write commits, the entries of its site overlapping the changed nights are invalidated. A result loaded while
+ * a write was committing is not cached: the generation is bumped with every invalidation and checked on insertion,
+ * both under the same lock, so a stale list never survives a committed write.
+ * Hits and misses are exposed as the {@code cache.gets} meter of the {@code bookings} cache.
+ */
+@Component
+public class BookingListCache {
+
+    private final Cache<Key, List<BookingDTO>> cache;
+    private long generation;
+
+    public BookingListCache(MeterRegistry meterRegistry,
+                            @Value("${campsite.cache.bookings.max_size}") long maxSize,
+                            @Value("${campsite.cache.bookings.ttl_seconds}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "bookings");
+    }
+
+    public List<BookingDTO> get(long siteId, LocalDate from, LocalDate to, Supplier<List<BookingDTO>> loader) {
+        Key key = new Key(siteId, from, to);
+        List<BookingDTO> bookings = cache.getIfPresent(key);
+        if (bookings != null) {
+            return bookings;
+        }
+
+        long loadGeneration = generation();
+        bookings = loader.get();
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                cache.put(key, bookings);
+            }
+        }
+        return bookings;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onCalendarChanged(CalendarChangedEvent event) {
+        generation++;
+        cache.asMap().keySet().removeIf(key -> key.siteId == event.getSiteId()
+                && key.from.isBefore(event.getTo()) && key.to.isAfter(event.getFrom()));
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    private static final class Key {
+
+        private final long siteId;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        private Key(long siteId, LocalDate from, LocalDate to) {
+            this.siteId = siteId;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key that = (Key) o;
+            return siteId == that.siteId &&
+                    from.equals(that.from) &&
+                    to.equals(that.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(siteId, from, to);
+        }
+    }
+}
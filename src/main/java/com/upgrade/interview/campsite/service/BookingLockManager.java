@@ -0,0 +1,83 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * Optional in-process admission of the reservations ({@code campsite.booking.lock.enabled}).
+ * Each site has its own fixed array of locks and each night maps to one of them by its epoch day. The locks of
+ * the requested nights are acquired in ascending order and a request finding one of them taken fails fast instead
+ * of reaching the database. Nights less than {@code campsite.booking.lock.stripes} days apart never share a lock,
+ * so non-overlapping requests within the booking window, or on different sites, run in parallel.
+ */
+@Component
+public class BookingLockManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookingLockManager.class);
+
+    private final boolean enabled;
+    private final int stripeCount;
+    private final ConcurrentMap<Long, ReentrantLock[]> siteStripes = new ConcurrentHashMap<>();
+
+    public BookingLockManager(@Value("${campsite.booking.lock.enabled}") boolean enabled,
+                              @Value("${campsite.booking.lock.stripes}") int stripes) {
+        this.enabled = enabled;
+        this.stripeCount = stripes;
+    }
+
+    /**
+     * Runs the action while holding the locks of the nights [arrivalDate, departureDate) of the site.
+     *
+     * @throws CampsiteAlreadyBookedException if another request holds one of the nights
+     */
+    public <T> T withNights(long siteId, LocalDate arrivalDate, LocalDate departureDate, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+
+        ReentrantLock[] stripes = siteStripes.computeIfAbsent(siteId, site -> newStripes());
+        int[] indexes = stripeIndexes(arrivalDate, departureDate);
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                if (!stripes[index].tryLock()) {
+                    LOGGER.error("Invalid booking dates: site {} being booked between {} and {}", siteId, arrivalDate, departureDate);
+                    throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + arrivalDate + " and " + departureDate + ". Please choose another date range",
+                            CampsiteAlreadyBookedException.Reason.LOCKED);
+                }
+                acquired++;
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    private ReentrantLock[] newStripes() {
+        ReentrantLock[] stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        return stripes;
+    }
+
+    private int[] stripeIndexes(LocalDate arrivalDate, LocalDate departureDate) {
+        return LongStream.range(arrivalDate.toEpochDay(), departureDate.toEpochDay())
+                .mapToInt(epochDay -> (int) Math.floorMod(epochDay, (long) stripeCount))
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+}
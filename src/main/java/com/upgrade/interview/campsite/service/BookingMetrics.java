@@ -0,0 +1,92 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the booking and availability paths, exposed by the actuator (/actuator/metrics, /actuator/prometheus):
+ * <ul>
+ *     <li>{@code campsite.operations}: timer per operation and outcome</li>
+ *     <li>{@code campsite.conflicts}: booking conflicts per operation and reason</li>
+ *     <li>{@code campsite.stay.nights}: requested stay lengths</li>
+ *     <li>{@code campsite.query.results}: result set sizes per query</li>
+ * </ul>
+ */
+@Component
+public class BookingMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public BookingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T timed(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = action.get();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException exception) {
+            outcome = outcome(operation, exception);
+            throw exception;
+        } finally {
+            sample.stop(meterRegistry.timer("campsite.operations", "operation", operation, "outcome", outcome));
+        }
+    }
+
+    /**
+     * Times the action until the future it returns completes.
+     */
+    public <T> CompletableFuture<T> timedAsync(String operation, Supplier<CompletableFuture<T>> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException exception) {
+            sample.stop(meterRegistry.timer("campsite.operations", "operation", operation, "outcome", outcome(operation, exception)));
+            throw exception;
+        }
+        return future.whenComplete((result, exception) -> {
+            Throwable cause = (exception instanceof CompletionException && exception.getCause() != null) ? exception.getCause() : exception;
+            String outcome = (cause == null) ? "success" : outcome(operation, cause);
+            sample.stop(meterRegistry.timer("campsite.operations", "operation", operation, "outcome", outcome));
+        });
+    }
+
+    public void stayLength(long nights) {
+        meterRegistry.summary("campsite.stay.nights").record(nights);
+    }
+
+    public void queryResults(String query, int size) {
+        meterRegistry.summary("campsite.query.results", "query", query).record(size);
+    }
+
+    public void conflict(String operation, CampsiteAlreadyBookedException.Reason reason) {
+        meterRegistry.counter("campsite.conflicts", "operation", operation, "reason", reason.name()).increment();
+    }
+
+    private String outcome(String operation, Throwable exception) {
+        if (exception instanceof CampsiteAlreadyBookedException) {
+            conflict(operation, ((CampsiteAlreadyBookedException) exception).getReason());
+            return "conflict";
+        }
+        if (exception instanceof ObjectOptimisticLockingFailureException) {
+            conflict(operation, CampsiteAlreadyBookedException.Reason.CONCURRENT_UPDATE);
+            return "conflict";
+        }
+        if (exception instanceof InvalidInputException) {
+            return "invalid";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,202 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.exception.CampsiteBusyException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Optional single-writer execution of the booking mutations ({@code campsite.booking.pipeline.enabled}).
+ * Each site has a bounded queue of commands ({@code campsite.booking.pipeline.queue_size}) drained by its own writer
+ * thread, which applies them in micro-batches: one transaction for up to {@code campsite.booking.pipeline.batch_size}
+ * queued commands. The writes of a site never run concurrently, so the claims on its nights never conflict with each
+ * other. A booking moved to another site is the exception: the move is applied by the writer of the new site while a
+ * cancellation of the same booking is applied by the writer of its current site, so the two may still race, the
+ * loser failing on the version of the booking or on the booking no longer found.
+ * A batch with a failing command is rolled back and its commands applied again one transaction each, so that a
+ * conflict only fails its own command. The future of a command completes once its transaction is committed.
+ */
+@Component
+public class BookingPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookingPipeline.class);
+
+    private final boolean enabled;
+    private final int queueSize;
+    private final int batchSize;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSizes;
+    private final ConcurrentMap<Long, Writer> writers = new ConcurrentHashMap<>();
+    // submissions share the read lock, closing takes the write lock: no command is queued once the writers are stopping
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    public BookingPipeline(TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                           @Value("${campsite.booking.pipeline.enabled}") boolean enabled,
+                           @Value("${campsite.booking.pipeline.queue_size}") int queueSize,
+                           @Value("${campsite.booking.pipeline.batch_size}") int batchSize) {
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.batchSizes = meterRegistry.summary("campsite.pipeline.batch.size");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the command for the writer of the site.
+     *
+     * @return the result of the command, completed after its transaction commits
+     * @throws CampsiteBusyException if the queue of the site is full
+     */
+    public <T> CompletableFuture<T> submit(long siteId, Supplier<T> command) {
+        Command<T> queued = new Command<>(command);
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                LOGGER.error("Booking pipeline of site {} stopped", siteId);
+                throw new CampsiteBusyException("Booking pipeline stopped. Please retry");
+            }
+
+            Writer writer = writers.computeIfAbsent(siteId, this::startWriter);
+            if (!writer.queue.offer(queued)) {
+                LOGGER.error("Booking pipeline of site {} full: {} commands waiting", siteId, writer.queue.size());
+                throw new CampsiteBusyException("Too many bookings in progress on this site. Please retry");
+            }
+        } finally {
+            closing.readLock().unlock();
+        }
+        return queued.future;
+    }
+
+    /**
+     * Stops the writers. The commands still queued, which can no longer be joined by new ones, fail as busy.
+     */
+    @PreDestroy
+    public void close() {
+        closing.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        writers.values().forEach(writer -> writer.thread.interrupt());
+    }
+
+    private Writer startWriter(long siteId) {
+        Writer writer = new Writer(siteId, new ArrayBlockingQueue<>(queueSize));
+        writer.thread.start();
+        LOGGER.info("Booking writer of site {} started", siteId);
+        return writer;
+    }
+
+    private final class Writer implements Runnable {
+
+        private final long siteId;
+        private final BlockingQueue<Command<?>> queue;
+        private final Thread thread;
+
+        private Writer(long siteId, BlockingQueue<Command<?>> queue) {
+            this.siteId = siteId;
+            this.queue = queue;
+            this.thread = new Thread(this, "booking-writer-" + siteId);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Command<?>> batch = new ArrayList<>(batchSize);
+            while (!closed) {
+                try {
+                    Command<?> first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    apply(batch);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } finally {
+                    batch.clear();
+                }
+            }
+
+            queue.drainTo(batch);
+            batch.forEach(command -> command.future.completeExceptionally(new CampsiteBusyException("Booking pipeline stopped. Please retry")));
+            LOGGER.info("Booking writer of site {} stopped", siteId);
+        }
+
+        private void apply(List<Command<?>> batch) {
+            batchSizes.record(batch.size());
+            try {
+                transactionTemplate.execute(status -> {
+                    batch.forEach(Command::run);
+                    return null;
+                });
+            } catch (RuntimeException exception) {
+                if (batch.size() == 1) {
+                    batch.get(0).future.completeExceptionally(exception);
+                    return;
+                }
+
+                LOGGER.info("Batch of {} commands of site {} rolled back, applied one at a time", batch.size(), siteId);
+                batch.forEach(this::applyAlone);
+                return;
+            }
+            batch.forEach(Command::complete);
+        }
+
+        private void applyAlone(Command<?> command) {
+            try {
+                transactionTemplate.execute(status -> {
+                    command.run();
+                    return null;
+                });
+                command.complete();
+            } catch (RuntimeException exception) {
+                command.future.completeExceptionally(exception);
+            }
+        }
+    }
+
+    private static final class Command<T> {
+
+        private final Supplier<T> action;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        private Command(Supplier<T> action) {
+            this.action = action;
+        }
+
+        private void run() {
+            result = action.get();
+        }
+
+        private void complete() {
+            future.complete(result);
+        }
+    }
+}
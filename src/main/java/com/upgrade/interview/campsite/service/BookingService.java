@@ -1,25 +1,43 @@
 package com.upgrade.interview.campsite.service;
 
 import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.DTO.BookingPageDTO;
+import com.upgrade.interview.campsite.DTO.BookingResultDTO;
+import com.upgrade.interview.campsite.DTO.HoldDTO;
 import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.event.CalendarChangedEvent;
 import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
 import com.upgrade.interview.campsite.exception.InvalidInputException;
 import com.upgrade.interview.campsite.mapper.BookingMapper;
-import com.upgrade.interview.campsite.repository.BookingRepository;
+import com.upgrade.interview.campsite.repository.BookingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.upgrade.interview.campsite.utils.BookingStatus.FREE;
 import static com.upgrade.interview.campsite.utils.BookingStatus.RESERVED;
@@ -29,126 +47,391 @@ public class BookingService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookingService.class);
 
-    private final BookingRepository bookingRepository;
+    private static final int BATCH_ATTEMPTS = 3;
+
+    private final BookingStore bookingStore;
     private final BookingMapper bookingMapper;
+    private final BookingLockManager bookingLockManager;
+    private final SiteRegistry siteRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookingMetrics bookingMetrics;
+    private final BookingListCache bookingListCache;
+    private final BookingPipeline bookingPipeline;
+    private final HoldRegistry holdRegistry;
     private final String bookingMaxDays;
+    private final int batchMaxSize;
+    private final int pageMaxSize;
+    private final int holdMaxMinutes;
 
-    public BookingService(BookingRepository bookingRepository, BookingMapper bookingMapper, @Value("${campsite.reservation.max_days}") String bookingMaxDays) {
-        this.bookingRepository = bookingRepository;
+    public BookingService(BookingStore bookingStore, BookingMapper bookingMapper, BookingLockManager bookingLockManager, SiteRegistry siteRegistry,
+                          TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher, BookingMetrics bookingMetrics,
+                          BookingListCache bookingListCache, BookingPipeline bookingPipeline, HoldRegistry holdRegistry,
+                          @Value("${campsite.reservation.max_days}") String bookingMaxDays,
+                          @Value("${campsite.booking.batch.max_size}") int batchMaxSize,
+                          @Value("${campsite.bookings.page.max_size}") int pageMaxSize,
+                          @Value("${campsite.hold.max_minutes}") int holdMaxMinutes) {
+        this.bookingStore = bookingStore;
         this.bookingMapper = bookingMapper;
+        this.bookingLockManager = bookingLockManager;
+        this.siteRegistry = siteRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.bookingMetrics = bookingMetrics;
+        this.bookingListCache = bookingListCache;
+        this.bookingPipeline = bookingPipeline;
+        this.holdRegistry = holdRegistry;
         this.bookingMaxDays = bookingMaxDays;
+        this.batchMaxSize = batchMaxSize;
+        this.pageMaxSize = pageMaxSize;
+        this.holdMaxMinutes = holdMaxMinutes;
     }
 
-    @Transactional(readOnly = true)
     public Collection<BookingDTO> bookings(LocalDate from, LocalDate to) {
+        return bookings(null, from, to);
+    }
+
+    /**
+     * @throws InvalidInputException if the date range, defaults applied, starts after it ends
+     */
+    public void checkDateRange(LocalDate from, LocalDate to) {
         final LocalDate startDate = (from != null) ? from : LocalDate.now();
         final LocalDate endDate = (to != null) ? to : LocalDate.now().plusMonths(1);
         if (startDate.isAfter(endDate)) {
             LOGGER.error("Invalid date range: start date {} is greater than end date {}", from, to);
             throw new InvalidInputException("Invalid date range: start date is greater than end date");
         }
+    }
+
+    /**
+     * Served from the {@link BookingListCache}, the query only runs on a miss.
+     */
+    public Collection<BookingDTO> bookings(Long siteId, LocalDate from, LocalDate to) {
+        final long site = this.siteRegistry.resolve(siteId);
+        checkDateRange(from, to);
+        final LocalDate startDate = (from != null) ? from : LocalDate.now();
+        final LocalDate endDate = (to != null) ? to : LocalDate.now().plusMonths(1);
 
-        return bookingRepository
-                .findReservedBookings(startDate, endDate, startDate, endDate, startDate, endDate)
-                .stream()
-                .map(bookingMapper::entityToDTO)
-                .sorted(Comparator.comparing(BookingDTO::getArrivalDate))
-                .collect(Collectors.toList());
+        return this.bookingMetrics.timed("bookings", () -> this.bookingListCache.get(site, startDate, endDate, () -> {
+            List<BookingEntity> reserved = bookingStore.findReservedBookings(site, startDate, endDate);
+            this.bookingMetrics.queryResults("findReservedBookings", reserved.size());
+            return Collections.unmodifiableList(reserved.stream()
+                    .map(bookingMapper::entityToDTO)
+                    .sorted(Comparator.comparing(BookingDTO::getArrivalDate))
+                    .collect(Collectors.toList()));
+        }));
     }
 
-    @Transactional
-    public Long book(final BookingDTO booking) {
-        checkBookingDateRange(booking);
-        List<BookingEntity> free = this.bookingRepository.findByArrivalDateGreaterThanEqualAndDepartureDateLessThanEqual(booking.getArrivalDate(), booking.getDepartureDate());
-        if (free.stream().anyMatch(entity -> RESERVED.name().equalsIgnoreCase(entity.getStatus()))) {
-            LOGGER.error("Invalid booking dates: campsite already booked between {} and {}", booking.getArrivalDate(), booking.getDepartureDate());
-            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+    /**
+     * One page of the bookings of a site, sorted by arrival date then identifier. The token of the next page holds the
+     * key of the last booking of the page, so every page is read from the index at that key whatever its depth.
+     * Not cached: the pages of a range that changes between two requests are neither repeated nor skipped.
+     *
+     * @param next token of the page as returned with the previous page, null for the first page
+     */
+    public BookingPageDTO bookingsPage(Long siteId, LocalDate from, LocalDate to, int limit, String next) {
+        final long site = this.siteRegistry.resolve(siteId);
+        checkDateRange(from, to);
+        final LocalDate startDate = (from != null) ? from : LocalDate.now();
+        final LocalDate endDate = (to != null) ? to : LocalDate.now().plusMonths(1);
+
+        if (limit < 1 || limit > this.pageMaxSize) {
+            LOGGER.error("Invalid page size {}: between 1 and {} expected", limit, this.pageMaxSize);
+            throw new InvalidInputException("Invalid page size: between 1 and " + this.pageMaxSize + " bookings expected");
         }
 
-        if (free.size() == 1) {
-            return singleDayBooking(booking, free);
+        LocalDate afterArrivalDate = null;
+        Long afterId = null;
+        if (next != null) {
+            String[] key = decodePageToken(next);
+            afterArrivalDate = LocalDate.ofEpochDay(Long.parseLong(key[0]));
+            afterId = Long.parseLong(key[1]);
         }
 
-        return manyDaysBooking(booking, free);
+        final LocalDate keyArrivalDate = afterArrivalDate;
+        final Long keyId = afterId;
+        return this.bookingMetrics.timed("bookingsPage", () -> {
+            // one more booking than the page tells whether there is a next page
+            List<BookingEntity> reserved = bookingStore.findReservedBookingsPage(site, startDate, endDate, keyArrivalDate, keyId, limit + 1);
+            this.bookingMetrics.queryResults("findReservedBookingsPage", reserved.size());
+            List<BookingEntity> page = reserved.subList(0, Math.min(limit, reserved.size()));
+            BookingEntity last = page.isEmpty() ? null : page.get(page.size() - 1);
+            return new BookingPageDTO(page.stream().map(bookingMapper::entityToDTO).collect(Collectors.toList()),
+                    (reserved.size() > limit) ? encodePageToken(last) : null);
+        });
     }
 
+    public Long book(final BookingDTO booking) {
+        return await(bookAsync(booking));
+    }
 
+    public CompletableFuture<Long> bookAsync(final BookingDTO booking) {
+        return bookAsync("book", booking, null);
+    }
 
-    private Long manyDaysBooking(BookingDTO booking, List<BookingEntity> toBook) {
-        final BookingEntity parentBooking = this.bookingRepository.saveAndFlush(this.bookingMapper.dtoToEntity(booking));
-        try {
-            toBook.forEach(entity -> {
-                entity.setStatus(RESERVED.name());
-                entity.setVisitorFullName(booking.getVisitorFullName());
-                entity.setVisitorEmail(booking.getVisitorEmail());
-                entity.setParentId(parentBooking.getId());
-            });
-            this.bookingRepository.saveAll(toBook);
-            parentBooking.setParentId(parentBooking.getId());
-            this.bookingRepository.saveAndFlush(parentBooking);
-        } catch (ObjectOptimisticLockingFailureException lockingFailureException) {
-            this.bookingRepository.deleteById(parentBooking.getId());
-            LOGGER.error("Invalid booking dates: campsite already booked between {} and {}", booking.getArrivalDate(), booking.getDepartureDate());
-            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
-        }
+    /**
+     * Holds the nights of the booking for the given number of minutes: they are reported as unavailable and cannot be
+     * booked but by confirming the hold, until it expires.
+     */
+    public HoldDTO hold(final BookingDTO booking, final int minutes) {
+        return this.bookingMetrics.timed("hold", () -> {
+            if (minutes < 1 || minutes > this.holdMaxMinutes) {
+                LOGGER.error("Invalid hold duration {}: between 1 and {} minutes expected", minutes, this.holdMaxMinutes);
+                throw new InvalidInputException("Invalid hold duration: between 1 and " + this.holdMaxMinutes + " minutes expected");
+            }
 
-        return parentBooking.getId();
+            booking.setSiteId(this.siteRegistry.resolve(booking.getSiteId()));
+            checkBookingDateRange(booking);
+            return this.holdRegistry.hold(booking, Duration.ofMinutes(minutes));
+        });
     }
 
-    private Long singleDayBooking(BookingDTO booking, List<BookingEntity> free) {
-        BookingEntity entity = free.get(0);
-        try {
-            entity.setStatus(RESERVED.name());
-            entity.setVisitorFullName(booking.getVisitorFullName());
-            entity.setVisitorEmail(booking.getVisitorEmail());
-            entity.setParentId(entity.getId());
-            this.bookingRepository.saveAndFlush(entity);
-            return entity.getId();
-        } catch (ObjectOptimisticLockingFailureException lockingFailureException) {
-            LOGGER.error("Invalid booking dates: campsite already booked between {} and {}", booking.getArrivalDate(), booking.getDepartureDate());
-            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+    public Long confirm(final String holdId) {
+        return await(confirmAsync(holdId));
+    }
+
+    /**
+     * Books the held nights, the hold being released once the booking is made.
+     */
+    public CompletableFuture<Long> confirmAsync(final String holdId) {
+        HoldDTO hold = this.holdRegistry.find(holdId).orElseThrow(() -> {
+            LOGGER.error("Invalid hold ID {}: no hold found, it may have expired", holdId);
+            return new InvalidInputException("Invalid hold ID: no hold found from ID " + holdId + ", it may have expired");
+        });
+        BookingDTO booking = new BookingDTO(null, hold.getSiteId(), hold.getVisitorEmail(), hold.getVisitorFullName(), hold.getArrivalDate(), hold.getDepartureDate());
+        return bookAsync("confirm", booking, holdId).thenApply(bookingUID -> {
+            this.holdRegistry.release(holdId);
+            return bookingUID;
+        });
+    }
+
+    public void releaseHold(final String holdId) {
+        if (!this.holdRegistry.release(holdId)) {
+            LOGGER.error("Invalid hold ID {}: no hold found, it may have expired", holdId);
+            throw new InvalidInputException("Invalid hold ID: no hold found from ID " + holdId + ", it may have expired");
         }
     }
 
-    @Transactional
+    /**
+     * The booking is validated on the calling thread, the nights held by another checkout than the given hold being
+     * a conflict. When the {@link BookingPipeline} is enabled, it is then queued for the writer of its site, otherwise
+     * the nights are locked (when enabled) before the transaction is opened, so a conflicting request fails fast, and
+     * the returned future is already complete.
+     */
+    private CompletableFuture<Long> bookAsync(final String operation, final BookingDTO booking, final String holdId) {
+        return this.bookingMetrics.timedAsync(operation, () -> {
+            booking.setSiteId(this.siteRegistry.resolve(booking.getSiteId()));
+            checkBookingDateRange(booking);
+            this.holdRegistry.checkNotHeld(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(), holdId);
+            if (this.bookingPipeline.isEnabled()) {
+                return this.bookingPipeline.submit(booking.getSiteId(), () -> reserve(booking));
+            }
+            return CompletableFuture.completedFuture(this.bookingLockManager.withNights(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(),
+                    () -> this.transactionTemplate.execute(status -> reserve(booking))));
+        });
+    }
+
+    /**
+     * Books a batch in a single transaction. Every booking is validated up front, the conflicts with the existing
+     * reservations are found with one query per site of the batch and an overlap within the batch is won by the first
+     * booking, then the remaining bookings are written together. If another request reserves one of the nights
+     * meanwhile, the transaction is rolled back and the batch checked again.
+     * The nights are not locked by the lock manager nor is the batch queued to the {@link BookingPipeline}: the store
+     * alone guards the batch.
+     *
+     * @return the outcome of each booking, in the order of the batch
+     */
+    public List<BookingResultDTO> bookAll(final List<BookingDTO> bookings) {
+        return this.bookingMetrics.timed("bookAll", () -> {
+            if (bookings.size() > this.batchMaxSize) {
+                LOGGER.error("Invalid batch: {} bookings, at most {} bookings expected", bookings.size(), this.batchMaxSize);
+                throw new InvalidInputException("Invalid batch: at most " + this.batchMaxSize + " bookings can be made at once");
+            }
+
+            final BookingResultDTO[] results = new BookingResultDTO[bookings.size()];
+            for (int i = 0; i < bookings.size(); i++) {
+                try {
+                    checkBatchBooking(bookings.get(i));
+                    this.holdRegistry.checkNotHeld(bookings.get(i).getSiteId(), bookings.get(i).getArrivalDate(), bookings.get(i).getDepartureDate(), null);
+                } catch (InvalidInputException exception) {
+                    results[i] = BookingResultDTO.invalid(i, exception.getMessage());
+                } catch (CampsiteAlreadyBookedException exception) {
+                    results[i] = BookingResultDTO.conflict(i, exception.getMessage(), exception.getReason().name());
+                }
+            }
+
+            for (int attempt = 1; attempt <= BATCH_ATTEMPTS && Arrays.stream(results).anyMatch(Objects::isNull); attempt++) {
+                try {
+                    Map<Integer, BookingResultDTO> outcome = this.transactionTemplate.execute(status -> reserveBatch(bookings, results));
+                    outcome.forEach((index, result) -> results[index] = result);
+                } catch (CampsiteAlreadyBookedException raced) {
+                    LOGGER.warn("Batch attempt {} raced by another booking: {}", attempt, raced.getMessage());
+                }
+            }
+
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = BookingResultDTO.conflict(i, "Invalid booking dates: campsite being booked between " + bookings.get(i).getArrivalDate() + " and " + bookings.get(i).getDepartureDate() + ". Please retry",
+                            CampsiteAlreadyBookedException.Reason.CONCURRENT_UPDATE.name());
+                }
+
+                if (results[i].getStatus() == BookingResultDTO.Status.CONFLICT) {
+                    this.bookingMetrics.conflict("bookAll", CampsiteAlreadyBookedException.Reason.valueOf(results[i].getReason()));
+                }
+            }
+            return Arrays.asList(results);
+        });
+    }
+
     public Long modify(final Long bookingUID, final BookingDTO bookingDTO) {
-        Optional<BookingEntity> bookingEntity = this.bookingRepository.findById(bookingUID);
-        bookingEntity.orElseThrow(() -> new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID));
-        Long newBookingUID = this.book(bookingDTO);
-        this.cancel(bookingUID);
-        return newBookingUID;
+        return await(modifyAsync(bookingUID, bookingDTO));
+    }
+
+    /**
+     * Moves the booking in place, in one transaction, keeping its identifier: its own nights are not a conflict.
+     * The booking stays on its site unless the modification names another one, the writer of that site applying it
+     * when the {@link BookingPipeline} is enabled.
+     */
+    public CompletableFuture<Long> modifyAsync(final Long bookingUID, final BookingDTO bookingDTO) {
+        return this.bookingMetrics.timedAsync("modify", () -> {
+            Optional<BookingEntity> bookingEntity = this.bookingStore.findBooking(bookingUID);
+            BookingEntity existing = bookingEntity.orElseThrow(() -> new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID));
+            bookingDTO.setSiteId(bookingDTO.getSiteId() != null ? this.siteRegistry.resolve(bookingDTO.getSiteId()) : existing.getSiteId());
+            checkBookingDateRange(bookingDTO);
+            this.holdRegistry.checkNotHeld(bookingDTO.getSiteId(), bookingDTO.getArrivalDate(), bookingDTO.getDepartureDate(), null);
+            if (this.bookingPipeline.isEnabled()) {
+                return this.bookingPipeline.submit(bookingDTO.getSiteId(), () -> move(bookingUID, bookingDTO));
+            }
+            return CompletableFuture.completedFuture(this.bookingLockManager.withNights(bookingDTO.getSiteId(), bookingDTO.getArrivalDate(), bookingDTO.getDepartureDate(),
+                    () -> this.transactionTemplate.execute(status -> move(bookingUID, bookingDTO))));
+        });
     }
 
-    @Transactional
     public void cancel(final Long bookingUID) {
-        List<BookingEntity> bookingsToCancel = this.bookingRepository.findByIdOrParentId(bookingUID, bookingUID);
-        if (bookingsToCancel.isEmpty()) {
-            LOGGER.error("Invalid booking ID: no booking found from ID {}", bookingUID);
-            throw new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID);
+        await(cancelAsync(bookingUID));
+    }
+
+    /**
+     * When the {@link BookingPipeline} is enabled, the cancellation is applied by the writer of the site of the booking.
+     */
+    public CompletableFuture<Long> cancelAsync(final Long bookingUID) {
+        return this.bookingMetrics.timedAsync("cancel", () -> {
+            if (this.bookingPipeline.isEnabled()) {
+                BookingEntity existing = this.bookingStore.findBooking(bookingUID)
+                        .orElseThrow(() -> new InvalidInputException("Invalid booking ID: no booking found from ID " + bookingUID));
+                return this.bookingPipeline.submit(existing.getSiteId(), () -> release(bookingUID));
+            }
+            return CompletableFuture.completedFuture(this.transactionTemplate.execute(status -> release(bookingUID)));
+        });
+    }
+
+    private Long reserve(final BookingDTO booking) {
+        Long bookingUID = this.bookingStore.reserve(booking);
+        this.eventPublisher.publishEvent(new CalendarChangedEvent(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(), RESERVED));
+        return bookingUID;
+    }
+
+    /**
+     * Reserves the bookings of the batch without a result yet, those overlapping an existing reservation or an
+     * earlier booking of the batch being reported as conflicts.
+     */
+    private Map<Integer, BookingResultDTO> reserveBatch(final List<BookingDTO> bookings, final BookingResultDTO[] results) {
+        final LocalDate origin = LocalDate.now();
+        final Map<Integer, BookingResultDTO> outcome = new HashMap<>();
+        final Map<Long, List<Integer>> pendingBySite = IntStream.range(0, bookings.size())
+                .filter(i -> results[i] == null)
+                .boxed()
+                .collect(Collectors.groupingBy(i -> bookings.get(i).getSiteId(), LinkedHashMap::new, Collectors.toList()));
+        final List<Integer> accepted = new ArrayList<>();
+        pendingBySite.forEach((siteId, pending) -> {
+            LocalDate from = pending.stream().map(i -> bookings.get(i).getArrivalDate()).min(Comparator.naturalOrder()).get();
+            LocalDate to = pending.stream().map(i -> bookings.get(i).getDepartureDate()).max(Comparator.naturalOrder()).get();
+            BitSet reserved = new BitSet();
+            this.bookingStore.findReservedBookings(siteId, from, to)
+                    .forEach(entity -> reserved.set(nightIndex(origin, entity.getArrivalDate()), nightIndex(origin, entity.getDepartureDate())));
+            for (Integer i : pending) {
+                BookingDTO booking = bookings.get(i);
+                int arrival = nightIndex(origin, booking.getArrivalDate());
+                int departure = nightIndex(origin, booking.getDepartureDate());
+                int nextReserved = reserved.nextSetBit(arrival);
+                if (nextReserved >= 0 && nextReserved < departure) {
+                    outcome.put(i, BookingResultDTO.conflict(i, "Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range",
+                            CampsiteAlreadyBookedException.Reason.UNAVAILABLE.name()));
+                } else {
+                    reserved.set(arrival, departure);
+                    accepted.add(i);
+                }
+            }
+        });
+
+        if (!accepted.isEmpty()) {
+            List<Long> bookingUIDs = this.bookingStore.reserveAll(accepted.stream().map(bookings::get).collect(Collectors.toList()));
+            for (int j = 0; j < accepted.size(); j++) {
+                BookingDTO booking = bookings.get(accepted.get(j));
+                this.eventPublisher.publishEvent(new CalendarChangedEvent(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(), RESERVED));
+                outcome.put(accepted.get(j), BookingResultDTO.created(accepted.get(j), bookingUIDs.get(j)));
+            }
         }
+        return outcome;
+    }
 
-        if (bookingsToCancel.size() == 1) {
-            BookingEntity booking = bookingsToCancel.get(0);
-            logicalCancel(booking);
-        } else {
-            bookingsToCancel.forEach(this::cancelHelper);
+    private static int nightIndex(LocalDate origin, LocalDate night) {
+        return (int) Math.max(0, ChronoUnit.DAYS.between(origin, night));
+    }
+
+    private static String encodePageToken(BookingEntity last) {
+        String key = last.getArrivalDate().toEpochDay() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodePageToken(String token) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (key.length == 2 && key[0].matches("-?\\d+") && key[1].matches("\\d+")) {
+                return key;
+            }
+        } catch (IllegalArgumentException exception) {
+            // not base64, reported below
         }
+        LOGGER.error("Invalid page token {}", token);
+        throw new InvalidInputException("Invalid page token: expected the token returned with the previous page");
+    }
+
+    private Long move(final Long bookingUID, final BookingDTO bookingDTO) {
+        BookingEntity previous = this.bookingStore.move(bookingUID, bookingDTO);
+        this.eventPublisher.publishEvent(new CalendarChangedEvent(previous.getSiteId(), previous.getArrivalDate(), previous.getDepartureDate(), FREE));
+        this.eventPublisher.publishEvent(new CalendarChangedEvent(bookingDTO.getSiteId(), bookingDTO.getArrivalDate(), bookingDTO.getDepartureDate(), RESERVED));
+        return bookingUID;
     }
 
-    private void cancelHelper(BookingEntity booking) {
-        if (booking.getId().equals(booking.getParentId())) {
-            this.bookingRepository.deleteById(booking.getId());
-        } else {
-            logicalCancel(booking);
+    private Long release(final Long bookingUID) {
+        BookingEntity cancelled = this.bookingStore.release(bookingUID);
+        this.eventPublisher.publishEvent(new CalendarChangedEvent(cancelled.getSiteId(), cancelled.getArrivalDate(), cancelled.getDepartureDate(), FREE));
+        return bookingUID;
+    }
+
+    /**
+     * Waits for the command, rethrowing its own exception.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
         }
     }
 
-    private void logicalCancel(BookingEntity booking) {
-        booking.setStatus(FREE.name());
-        booking.setParentId(null);
-        booking.setVisitorEmail(null);
-        booking.setVisitorFullName(null);
-        this.bookingRepository.saveAndFlush(booking);
+    private void checkBatchBooking(final BookingDTO booking) {
+        if (booking == null || booking.getArrivalDate() == null || booking.getDepartureDate() == null) {
+            LOGGER.error("Invalid booking {}: arrival and departure dates are required", booking);
+            throw new InvalidInputException("Invalid booking: arrival and departure dates are required");
+        }
+
+        booking.setSiteId(this.siteRegistry.resolve(booking.getSiteId()));
+        checkBookingDateRange(booking);
     }
 
     private void checkBookingDateRange(final BookingDTO booking) {
@@ -167,7 +450,9 @@ public class BookingService {
             throw new InvalidInputException("Invalid booking date range: arrival date is equal/greater than departure date");
         }
 
-        if (ChronoUnit.DAYS.between(booking.getArrivalDate(), booking.getDepartureDate()) > Integer.parseInt(this.bookingMaxDays)) {
+        final long nights = ChronoUnit.DAYS.between(booking.getArrivalDate(), booking.getDepartureDate());
+        this.bookingMetrics.stayLength(nights);
+        if (nights > Integer.parseInt(this.bookingMaxDays)) {
             LOGGER.error("Invalid booking dates: the campsite cannot be booked for more than {} days. ArrivalDate={}, DepartureDate={}", bookingMaxDays, booking.getArrivalDate(), booking.getDepartureDate());
             throw new InvalidInputException("Invalid booking dates: the campsite cannot be booked for more than " + bookingMaxDays + " days in a row");
         }
@@ -0,0 +1,97 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.repository.BookingRepository;
+import com.upgrade.interview.campsite.utils.BookingStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the per-night slot rows of the {@code slots} storage mode on a rolling horizon:
+ * the nights from today to today + {@code campsite.calendar.horizon_days} always have a row on every site,
+ * and the slot rows of past nights are removed, the bookings being kept.
+ * Only the missing nights are inserted, in batches, so that a run only adds the next day once the horizon is filled.
+ */
+@Component
+@ConditionalOnProperty(name = "campsite.storage.mode", havingValue = "slots", matchIfMissing = true)
+public class CalendarHorizonRoller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CalendarHorizonRoller.class);
+
+    private final BookingRepository bookingRepository;
+    private final SiteRegistry siteRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int horizonDays;
+    private final int batchSize;
+
+    public CalendarHorizonRoller(BookingRepository bookingRepository, SiteRegistry siteRegistry, TransactionTemplate transactionTemplate,
+                                 @Value("${campsite.calendar.horizon_days}") int horizonDays,
+                                 @Value("${campsite.calendar.roll_batch_size}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.siteRegistry = siteRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${campsite.calendar.roll_cron}")
+    public void roll() {
+        LocalDate today = LocalDate.now();
+        Integer removed = transactionTemplate.execute(status -> bookingRepository.deletePastSlots(today));
+        LOGGER.info("{} past slots removed", removed);
+
+        LocalDate horizon = today.plusDays(horizonDays);
+        List<BookingEntity> batch = new ArrayList<>(batchSize);
+        int added = 0;
+        for (Long siteId : siteRegistry.siteIds()) {
+            Set<LocalDate> existing = bookingRepository.findBySiteIdAndArrivalDateGreaterThanEqualAndDepartureDateLessThanEqual(siteId, today, horizon.plusDays(1))
+                    .stream()
+                    .filter(slot -> !slot.isParent())
+                    .map(BookingEntity::getArrivalDate)
+                    .collect(Collectors.toSet());
+            for (LocalDate night = today; night.isBefore(horizon); night = night.plusDays(1)) {
+                if (existing.contains(night)) {
+                    continue;
+                }
+
+                batch.add(slot(siteId, night));
+                added++;
+                if (batch.size() == batchSize) {
+                    save(batch);
+                }
+            }
+        }
+        save(batch);
+        LOGGER.info("Calendar horizon rolled up to {}: {} slots added", horizon, added);
+    }
+
+    private static BookingEntity slot(Long siteId, LocalDate night) {
+        BookingEntity slot = new BookingEntity();
+        slot.setSiteId(siteId);
+        slot.setArrivalDate(night);
+        slot.setDepartureDate(night.plusDays(1));
+        slot.setStatus(BookingStatus.FREE.name());
+        return slot;
+    }
+
+    private void save(List<BookingEntity> batch) {
+        if (!batch.isEmpty()) {
+            transactionTemplate.execute(status -> bookingRepository.saveAll(batch));
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.AvailabilityDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.event.CalendarChangedEvent;
+import com.upgrade.interview.campsite.event.HoldChangedEvent;
+import com.upgrade.interview.campsite.repository.BookingStore;
+import com.upgrade.interview.campsite.utils.BookingStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory calendar of the sites: per site, one bit per night, set when the night is reserved, and one more per
+ * night, set while the night is held by a checkout.
+ * Writers copy the current bitsets of the site, apply their change and publish a new immutable {@link Snapshot},
+ * so readers never take a lock and a change on a site leaves the others untouched.
+ */
+@Component
+public class CalendarIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CalendarIndex.class);
+
+    private final BookingStore bookingStore;
+    private final SiteRegistry siteRegistry;
+    private final ConcurrentMap<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public CalendarIndex(BookingStore bookingStore, SiteRegistry siteRegistry) {
+        this.bookingStore = bookingStore;
+        this.siteRegistry = siteRegistry;
+        LocalDate origin = LocalDate.now();
+        siteRegistry.siteIds().forEach(siteId -> snapshots.put(siteId, new Snapshot(origin, new BitSet(), new BitSet())));
+    }
+
+    public Snapshot snapshot(long siteId) {
+        return snapshots.get(siteId);
+    }
+
+    /**
+     * @return the sites with every night of [from, to) free, one bitset lookup per site
+     */
+    public List<Long> freeSites(LocalDate from, LocalDate to) {
+        return siteRegistry.siteIds().stream()
+                .filter(siteId -> snapshots.get(siteId).isFree(from, to))
+                .collect(Collectors.toList());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        LocalDate origin = LocalDate.now();
+        Map<Long, BitSet> reserved = new HashMap<>();
+        siteRegistry.siteIds().forEach(siteId -> reserved.put(siteId, new BitSet()));
+        List<BookingEntity> bookings = bookingStore.findReservedBookingsDepartingAfter(origin);
+        bookings.stream()
+                .filter(booking -> reserved.containsKey(booking.getSiteId()))
+                .forEach(booking -> mark(reserved.get(booking.getSiteId()), origin, booking.getArrivalDate(), booking.getDepartureDate(), true));
+        reserved.forEach((siteId, nights) -> snapshots.put(siteId, new Snapshot(origin, nights, shift(snapshots.get(siteId), origin))));
+        LOGGER.info("Calendar index rebuilt from {} for {} sites with {} reservations", origin, reserved.size(), bookings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onCalendarChanged(CalendarChangedEvent event) {
+        Snapshot current = snapshots.get(event.getSiteId());
+        BitSet reserved = (BitSet) current.reserved.clone();
+        mark(reserved, current.origin, event.getFrom(), event.getTo(), event.getStatus() == BookingStatus.RESERVED);
+        snapshots.put(event.getSiteId(), new Snapshot(current.origin, reserved, current.held));
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onHoldChanged(HoldChangedEvent event) {
+        Snapshot current = snapshots.get(event.getSiteId());
+        BitSet held = (BitSet) current.held.clone();
+        mark(held, current.origin, event.getFrom(), event.getTo(), event.isHeld());
+        snapshots.put(event.getSiteId(), new Snapshot(current.origin, current.reserved, held));
+    }
+
+    /**
+     * @return the held nights of the snapshot, relative to the new origin
+     */
+    private static BitSet shift(Snapshot current, LocalDate origin) {
+        if (current == null) {
+            return new BitSet();
+        }
+        int days = offset(current.origin, origin);
+        return (days <= 0) ? (BitSet) current.held.clone() : current.held.get(days, Math.max(days, current.held.length()));
+    }
+
+    private static void mark(BitSet reserved, LocalDate origin, LocalDate from, LocalDate to, boolean value) {
+        int fromIndex = Math.max(0, offset(origin, from));
+        int toIndex = offset(origin, to);
+        if (fromIndex < toIndex) {
+            reserved.set(fromIndex, toIndex, value);
+        }
+    }
+
+    private static int offset(LocalDate origin, LocalDate day) {
+        return Math.toIntExact(day.toEpochDay() - origin.toEpochDay());
+    }
+
+    /**
+     * Read-only view of the calendar of a site. Nights before the origin are unknown and never reported as available,
+     * nor are the held nights.
+     */
+    public static final class Snapshot {
+
+        private final LocalDate origin;
+        private final BitSet reserved;
+        private final BitSet held;
+        private final BitSet unavailable;
+
+        private Snapshot(LocalDate origin, BitSet reserved, BitSet held) {
+            this.origin = origin;
+            this.reserved = reserved;
+            this.held = held;
+            this.unavailable = (BitSet) reserved.clone();
+            this.unavailable.or(held);
+        }
+
+        public LocalDate getOrigin() {
+            return origin;
+        }
+
+        public boolean isReserved(LocalDate night) {
+            int index = offset(origin, night);
+            return index >= 0 && reserved.get(index);
+        }
+
+        public boolean isHeld(LocalDate night) {
+            int index = offset(origin, night);
+            return index >= 0 && held.get(index);
+        }
+
+        /**
+         * @return true if none of the nights of [from, to) is reserved or held
+         */
+        public boolean isFree(LocalDate from, LocalDate to) {
+            int fromIndex = offset(origin, from);
+            if (fromIndex < 0) {
+                return false;
+            }
+
+            int nextReserved = unavailable.nextSetBit(fromIndex);
+            return nextReserved < 0 || nextReserved >= offset(origin, to);
+        }
+
+        public List<AvailabilityDTO> freeNights(LocalDate from, LocalDate to) {
+            List<AvailabilityDTO> nights = new ArrayList<>();
+            int toIndex = offset(origin, to);
+            for (int i = unavailable.nextClearBit(Math.max(0, offset(origin, from))); i < toIndex; i = unavailable.nextClearBit(i + 1)) {
+                LocalDate night = origin.plusDays(i);
+                nights.add(new AvailabilityDTO(night, night.plusDays(1)));
+            }
+            return nights;
+        }
+
+        /**
+         * Free nights in [from, to) merged into maximal contiguous ranges, one linear pass over the bitset.
+         */
+        public List<AvailabilityDTO> freeRanges(LocalDate from, LocalDate to) {
+            List<AvailabilityDTO> ranges = new ArrayList<>();
+            int toIndex = offset(origin, to);
+            int start = unavailable.nextClearBit(Math.max(0, offset(origin, from)));
+            while (start < toIndex) {
+                int nextReserved = unavailable.nextSetBit(start);
+                int end = (nextReserved < 0 || nextReserved > toIndex) ? toIndex : nextReserved;
+                ranges.add(new AvailabilityDTO(origin.plusDays(start), origin.plusDays(end)));
+                start = unavailable.nextClearBit(end);
+            }
+            return ranges;
+        }
+    }
+}
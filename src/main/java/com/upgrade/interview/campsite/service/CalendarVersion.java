@@ -0,0 +1,76 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.event.CalendarChangedEvent;
+import com.upgrade.interview.campsite.event.HoldChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Version of the calendar, per site and deployment-wide, bumped once a write commits or a hold changes.
+ * The listener runs after the ones refreshing the read side ({@link CalendarIndex}, {@link BookingListCache}), so
+ * a version read before the content is never newer than the content. The ETags also carry the query parameters, so that
+ * one ETag never stands for another query of the resource, the instance, the counters starting over on restart, and the
+ * day, the default date ranges moving with it.
+ */
+@Component
+public class CalendarVersion {
+
+    private final String instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong version = new AtomicLong();
+    private final ConcurrentMap<Long, AtomicLong> siteVersions = new ConcurrentHashMap<>();
+    private final SiteRegistry siteRegistry;
+
+    public CalendarVersion(SiteRegistry siteRegistry) {
+        this.siteRegistry = siteRegistry;
+    }
+
+    /**
+     * @param query the validated query parameters the content depends on
+     * @return the ETag of a resource built from the calendar of the site, the default one if none
+     */
+    public String etag(String resource, Long siteId, Object... query) {
+        long site = siteRegistry.resolve(siteId);
+        return etag(resource, query, site + "." + siteVersion(site).get());
+    }
+
+    /**
+     * @param query the validated query parameters the content depends on
+     * @return the ETag of a resource built from the calendars of all the sites
+     */
+    public String etag(String resource, Object... query) {
+        return etag(resource, query, String.valueOf(version.get()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCalendarChanged(CalendarChangedEvent event) {
+        siteVersion(event.getSiteId()).incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onHoldChanged(HoldChangedEvent event) {
+        siteVersion(event.getSiteId()).incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    private AtomicLong siteVersion(long siteId) {
+        return siteVersions.computeIfAbsent(siteId, site -> new AtomicLong());
+    }
+
+    private String etag(String resource, Object[] query, String calendarVersion) {
+        String parameters = Arrays.stream(query).map(String::valueOf).collect(Collectors.joining("_"));
+        return "\"" + resource + (parameters.isEmpty() ? "" : "-" + parameters) + "-" + instance + "-" + calendarVersion + "-" + LocalDate.now().toEpochDay() + "\"";
+    }
+}
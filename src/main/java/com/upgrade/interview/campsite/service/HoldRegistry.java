@@ -0,0 +1,143 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.DTO.HoldDTO;
+import com.upgrade.interview.campsite.event.HoldChangedEvent;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.utils.TimerWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process holds of the nights of a site for a checkout. A hold is only placed on nights neither reserved nor
+ * already held, and the held nights are reported as unavailable until the hold is confirmed, released or expires.
+ * The expiries are driven by a hashed {@link TimerWheel} ({@code campsite.hold.tick_ms}, {@code campsite.hold.wheel_size}):
+ * no task is scheduled per hold and no table is scanned.
+ * Holds are checked before a reservation is written, the database staying the only guard of the reservations.
+ */
+@Component
+public class HoldRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HoldRegistry.class);
+
+    private final CalendarIndex calendarIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TimerWheel timerWheel;
+    private final Counter expired;
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    // holds of each site by arrival date, guarded by this
+    private final Map<Long, TreeMap<LocalDate, Hold>> siteHolds = new HashMap<>();
+
+    public HoldRegistry(CalendarIndex calendarIndex, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                        @Value("${campsite.hold.tick_ms}") long tickMillis,
+                        @Value("${campsite.hold.wheel_size}") int wheelSize) {
+        this.calendarIndex = calendarIndex;
+        this.eventPublisher = eventPublisher;
+        this.timerWheel = new TimerWheel("hold-expiry", tickMillis, wheelSize);
+        this.expired = meterRegistry.counter("campsite.holds.expired");
+        meterRegistry.gaugeMapSize("campsite.holds", Tags.empty(), holds);
+    }
+
+    /**
+     * Holds the nights of the booking, which is expected to be valid, on its site.
+     *
+     * @throws CampsiteAlreadyBookedException if one of the nights is already reserved or held
+     */
+    public synchronized HoldDTO hold(BookingDTO booking, Duration duration) {
+        checkNotHeld(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(), null);
+        if (!calendarIndex.snapshot(booking.getSiteId()).isFree(booking.getArrivalDate(), booking.getDepartureDate())) {
+            LOGGER.error("Invalid hold dates: site {} already booked between {} and {}", booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate());
+            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked between " + booking.getArrivalDate() + " and " + booking.getDepartureDate() + ". Please choose another date range");
+        }
+
+        String holdId = UUID.randomUUID().toString();
+        Hold hold = new Hold(new HoldDTO(holdId, booking.getSiteId(), booking.getVisitorEmail(), booking.getVisitorFullName(),
+                booking.getArrivalDate(), booking.getDepartureDate(), Instant.now().plus(duration)));
+        hold.timeout = timerWheel.schedule(duration.toMillis(), () -> expire(holdId));
+        holds.put(holdId, hold);
+        siteHolds.computeIfAbsent(booking.getSiteId(), site -> new TreeMap<>()).put(booking.getArrivalDate(), hold);
+        eventPublisher.publishEvent(new HoldChangedEvent(booking.getSiteId(), booking.getArrivalDate(), booking.getDepartureDate(), true));
+        return hold.hold;
+    }
+
+    public Optional<HoldDTO> find(String holdId) {
+        return Optional.ofNullable(holds.get(holdId)).map(hold -> hold.hold);
+    }
+
+    /**
+     * @param exceptHoldId a hold not to be taken into account, null if none
+     * @throws CampsiteAlreadyBookedException if one of the nights [arrivalDate, departureDate) of the site is held
+     */
+    public synchronized void checkNotHeld(long siteId, LocalDate arrivalDate, LocalDate departureDate, String exceptHoldId) {
+        TreeMap<LocalDate, Hold> held = siteHolds.get(siteId);
+        if (held == null) {
+            return;
+        }
+
+        // holds never overlap each other: going back from the departure date, the first one ending before the arrival date is the last candidate
+        for (Hold hold : held.headMap(departureDate, false).descendingMap().values()) {
+            if (!hold.hold.getDepartureDate().isAfter(arrivalDate)) {
+                return;
+            }
+            if (!hold.hold.getHoldId().equals(exceptHoldId)) {
+                LOGGER.error("Invalid booking dates: site {} held between {} and {}", siteId, hold.hold.getArrivalDate(), hold.hold.getDepartureDate());
+                throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite held between " + hold.hold.getArrivalDate() + " and " + hold.hold.getDepartureDate() + ". Please choose another date range",
+                        CampsiteAlreadyBookedException.Reason.HELD);
+            }
+        }
+    }
+
+    /**
+     * @return false if there is no such hold, e.g. it expired
+     */
+    public synchronized boolean release(String holdId) {
+        Hold hold = holds.remove(holdId);
+        if (hold == null) {
+            return false;
+        }
+
+        hold.timeout.cancel();
+        siteHolds.get(hold.hold.getSiteId()).remove(hold.hold.getArrivalDate());
+        eventPublisher.publishEvent(new HoldChangedEvent(hold.hold.getSiteId(), hold.hold.getArrivalDate(), hold.hold.getDepartureDate(), false));
+        return true;
+    }
+
+    @PreDestroy
+    public void close() {
+        timerWheel.close();
+    }
+
+    private void expire(String holdId) {
+        if (release(holdId)) {
+            expired.increment();
+            LOGGER.info("Hold {} expired", holdId);
+        }
+    }
+
+    private static final class Hold {
+
+        private final HoldDTO hold;
+        private TimerWheel.Timeout timeout;
+
+        private Hold(HoldDTO hold) {
+            this.hold = hold;
+        }
+    }
+}
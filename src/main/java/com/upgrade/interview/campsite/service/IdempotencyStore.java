@@ -0,0 +1,105 @@
+package com.upgrade.interview.campsite.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Results of the write requests made with an {@code Idempotency-Key}, per client, bounded ({@code campsite.idempotency.max_size})
+ * and evicted after {@code campsite.idempotency.ttl_seconds}. The entry of a key is its result future: while the first
+ * request is in flight, a retry with the same key waits for it, and once it completed, a retry gets its result
+ * straight from memory. A failed request leaves no entry, so that it can be retried.
+ * Replays are exposed as the {@code cache.gets} meter of the {@code idempotency} cache.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final int KEY_MAX_LENGTH = 255;
+
+    private final Cache<List<String>, Entry> cache;
+
+    public IdempotencyStore(MeterRegistry meterRegistry,
+                            @Value("${campsite.idempotency.max_size}") long maxSize,
+                            @Value("${campsite.idempotency.ttl_seconds}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    /**
+     * Runs the action once per client, operation and key, the retries getting the result of the first run. The keys
+     * are chosen by the clients, so two clients using the same key do not share their results.
+     *
+     * @param client  the identity of the client making the request
+     * @param key     the idempotency key of the client, the action always runs if none
+     * @param request what the request asks for: a retry asking for something else with the same key is rejected
+     * @throws InvalidInputException if the key is too long or already used for another request
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String client, String operation, String key, Object request, Supplier<CompletableFuture<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+
+        if (key.isEmpty() || key.length() > KEY_MAX_LENGTH) {
+            LOGGER.error("Invalid idempotency key {}: 1 to {} characters expected", key, KEY_MAX_LENGTH);
+            throw new InvalidInputException("Invalid idempotency key: 1 to " + KEY_MAX_LENGTH + " characters expected");
+        }
+
+        List<String> cacheKey = Arrays.asList(client, operation, key);
+        Entry entry = new Entry(request);
+        Entry existing = cache.get(cacheKey, any -> entry);
+        if (existing != entry) {
+            if (!Objects.equals(existing.request, request)) {
+                LOGGER.error("Invalid idempotency key {}: already used for another {} request", key, operation);
+                throw new InvalidInputException("Invalid idempotency key: already used for another request");
+            }
+            LOGGER.info("Replaying the {} request with idempotency key {}", operation, key);
+            return (CompletableFuture<T>) existing.result;
+        }
+
+        try {
+            action.get().whenComplete((result, exception) -> {
+                if (exception != null) {
+                    cache.asMap().remove(cacheKey, entry);
+                    entry.result.completeExceptionally(exception);
+                } else {
+                    entry.result.complete(result);
+                }
+            });
+        } catch (RuntimeException exception) {
+            cache.asMap().remove(cacheKey, entry);
+            entry.result.completeExceptionally(exception);
+            throw exception;
+        }
+        return (CompletableFuture<T>) entry.result;
+    }
+
+    private static final class Entry {
+
+        private final Object request;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(Object request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.upgrade.interview.campsite.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrade.interview.campsite.exception.CampsiteRateLimitedException;
+import com.upgrade.interview.campsite.utils.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client rate limiting of the API ({@code campsite.ratelimit.*}): each client has one {@link TokenBucket} for the
+ * reads and one for the writes, so that a client flooding the availabilities does not use up its booking budget,
+ * nor does it slow down the other clients. The buckets are kept in a bounded cache ({@code max_clients}) evicting
+ * the clients idle for {@code idle_seconds}, an evicted client starting over with a full bucket.
+ */
+@Component
+public class RateLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiter.class);
+
+    public enum Budget {
+        READ, WRITE
+    }
+
+    private final boolean enabled;
+    private final int readCapacity;
+    private final double readPerSecond;
+    private final int writeCapacity;
+    private final double writePerSecond;
+    private final LongSupplier clock;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, TokenBucket> buckets;
+
+    @Autowired
+    public RateLimiter(MeterRegistry meterRegistry,
+                       @Value("${campsite.ratelimit.enabled}") boolean enabled,
+                       @Value("${campsite.ratelimit.read.capacity}") int readCapacity,
+                       @Value("${campsite.ratelimit.read.per_second}") double readPerSecond,
+                       @Value("${campsite.ratelimit.write.capacity}") int writeCapacity,
+                       @Value("${campsite.ratelimit.write.per_second}") double writePerSecond,
+                       @Value("${campsite.ratelimit.max_clients}") long maxClients,
+                       @Value("${campsite.ratelimit.idle_seconds}") long idleSeconds) {
+        this(meterRegistry, enabled, readCapacity, readPerSecond, writeCapacity, writePerSecond, maxClients, idleSeconds, System::nanoTime);
+    }
+
+    RateLimiter(MeterRegistry meterRegistry, boolean enabled, int readCapacity, double readPerSecond, int writeCapacity, double writePerSecond,
+                long maxClients, long idleSeconds, LongSupplier clock) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.readCapacity = readCapacity;
+        this.readPerSecond = readPerSecond;
+        this.writeCapacity = writeCapacity;
+        this.writePerSecond = writePerSecond;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleSeconds, TimeUnit.SECONDS)
+                .build();
+        meterRegistry.gauge("campsite.ratelimit.buckets", buckets, cache -> cache.estimatedSize());
+    }
+
+    /**
+     * Takes a token of the budget of the client.
+     *
+     * @throws CampsiteRateLimitedException if the client has no token left
+     */
+    public void acquire(String client, Budget budget) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = clock.getAsLong();
+        TokenBucket bucket = buckets.get(client + '|' + budget, key -> budget == Budget.READ
+                ? new TokenBucket(readCapacity, readPerSecond, now)
+                : new TokenBucket(writeCapacity, writePerSecond, now));
+        long wait = bucket.tryTake(now);
+        if (wait > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            meterRegistry.counter("campsite.ratelimit.rejected", "budget", budget.name()).increment();
+            LOGGER.error("Too many {} requests from client {}: retry after {} seconds", budget, client, retryAfterSeconds);
+            throw new CampsiteRateLimitedException("Too many requests. Please retry after " + retryAfterSeconds + " seconds", retryAfterSeconds);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * The sites (pitches) of the deployment, numbered from 1 to {@code campsite.site.count}.
+ * Requests without a site are made on the {@link #DEFAULT_SITE}.
+ */
+@Component
+public class SiteRegistry {
+
+    public static final long DEFAULT_SITE = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SiteRegistry.class);
+
+    private final List<Long> siteIds;
+
+    public SiteRegistry(@Value("${campsite.site.count}") int siteCount) {
+        this.siteIds = LongStream.rangeClosed(DEFAULT_SITE, siteCount)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    public List<Long> siteIds() {
+        return siteIds;
+    }
+
+    /**
+     * @return the given site, the default one if none
+     * @throws InvalidInputException if the site does not exist
+     */
+    public long resolve(Long siteId) {
+        if (siteId == null) {
+            return DEFAULT_SITE;
+        }
+
+        if (siteId < DEFAULT_SITE || siteId > siteIds.size()) {
+            LOGGER.error("Invalid site ID {}: expected a site between {} and {}", siteId, DEFAULT_SITE, siteIds.size());
+            throw new InvalidInputException("Invalid site ID: expected a site between " + DEFAULT_SITE + " and " + siteIds.size());
+        }
+        return siteId;
+    }
+}
@@ -0,0 +1,108 @@
+package com.upgrade.interview.campsite.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel: a ring of buckets, one per tick, each timeout being hashed into the bucket of its deadline
+ * along with the number of turns of the wheel left before it expires. Scheduling and cancelling a timeout are O(1)
+ * and a tick only visits the timeouts of one bucket, whatever the number of pending timeouts.
+ * Deadlines are rounded up to the next tick. The expired tasks run on the single thread of the wheel.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final long tickMillis;
+    private final List<Set<Timeout>> buckets;
+    private final ScheduledExecutorService ticker;
+    private long tick;
+
+    public TimerWheel(String name, long tickMillis, int wheelSize) {
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            this.buckets.add(new HashSet<>());
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the task once the delay is over, unless the returned timeout is cancelled first.
+     */
+    public synchronized Timeout schedule(long delayMillis, Runnable task) {
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        Set<Timeout> bucket = buckets.get((int) ((tick + ticks) % buckets.size()));
+        Timeout timeout = new Timeout(this, bucket, (ticks - 1) / buckets.size(), task);
+        bucket.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    void advance() {
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            tick++;
+            Iterator<Timeout> timeouts = buckets.get((int) (tick % buckets.size())).iterator();
+            while (timeouts.hasNext()) {
+                Timeout timeout = timeouts.next();
+                if (timeout.rounds == 0) {
+                    timeouts.remove();
+                    expired.add(timeout);
+                } else {
+                    timeout.rounds--;
+                }
+            }
+        }
+
+        for (Timeout timeout : expired) {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException exception) {
+                LOGGER.error("Timeout task failed", exception);
+            }
+        }
+    }
+
+    public static final class Timeout {
+
+        private final TimerWheel wheel;
+        private final Set<Timeout> bucket;
+        private final Runnable task;
+        private long rounds;
+
+        private Timeout(TimerWheel wheel, Set<Timeout> bucket, long rounds, Runnable task) {
+            this.wheel = wheel;
+            this.bucket = bucket;
+            this.rounds = rounds;
+            this.task = task;
+        }
+
+        /**
+         * @return false if the task already ran or was already cancelled
+         */
+        public boolean cancel() {
+            synchronized (wheel) {
+                return bucket.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.upgrade.interview.campsite.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket holding up to capacity tokens, refilled at a constant rate. The whole state is a single
+ * timestamp, the time at which the bucket will be full again (generic cell rate algorithm): taking a token pushes
+ * it one refill interval later, and is refused when it would go beyond capacity intervals from now.
+ * A compare-and-set retries the rare concurrent takes instead of locking.
+ */
+public class TokenBucket {
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int capacity, double tokensPerSecond, long nowNanos) {
+        this.refillNanos = (long) (1_000_000_000L / tokensPerSecond);
+        this.burstNanos = refillNanos * capacity;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise how long to wait, in nanoseconds, before one is available
+     */
+    public long tryTake(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + refillNanos;
+            long wait = next - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.upgrade.interview.campsite.benchmark;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.mapper.BookingMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class BookingMapperBenchmark {
+
+    private final BookingMapper bookingMapper = new BookingMapper();
+    private BookingDTO dto;
+    private BookingEntity entity;
+
+    @Setup
+    public void setUp() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+        dto = new BookingDTO(1L, "benchmark@upgrade.com", "Benchmark", arrivalDate, arrivalDate.plusDays(3));
+        entity = bookingMapper.dtoToEntity(dto);
+        entity.setId(1L);
+        entity.setParentId(1L);
+    }
+
+    @Benchmark
+    public BookingDTO entityToDTO() {
+        return bookingMapper.entityToDTO(entity);
+    }
+
+    @Benchmark
+    public BookingEntity dtoToEntity() {
+        return bookingMapper.dtoToEntity(dto);
+    }
+}
@@ -0,0 +1,65 @@
+package com.upgrade.interview.campsite.benchmark;
+
+import com.upgrade.interview.campsite.DTO.AvailabilityDTO;
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.service.AvailabilityService;
+import com.upgrade.interview.campsite.service.BookingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BookingService} and {@link AvailabilityService} read paths over the whole calendar horizon,
+ * with one night out of {@code bookingEvery} booked in the booking window.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BookingReadBenchmark {
+
+    @Param({"35", "365"})
+    public int horizonDays;
+
+    @Param({"slots", "intervals"})
+    public String storageMode;
+
+    @Param({"2"})
+    public int bookingEvery;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private AvailabilityService availabilityService;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = CampsiteLauncher.start("campsite.calendar.horizon_days=" + horizonDays, "campsite.storage.mode=" + storageMode);
+        bookingService = context.getBean(BookingService.class);
+        availabilityService = context.getBean(AvailabilityService.class);
+        from = LocalDate.now();
+        to = from.plusDays(horizonDays);
+        for (LocalDate arrivalDate = from.plusDays(1); !arrivalDate.isAfter(from.plusMonths(1)); arrivalDate = arrivalDate.plusDays(bookingEvery)) {
+            bookingService.book(new BookingDTO(null, "benchmark@upgrade.com", "Benchmark", arrivalDate, arrivalDate.plusDays(1)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<BookingDTO> bookings() {
+        return bookingService.bookings(from, to);
+    }
+
+    @Benchmark
+    public List<AvailabilityDTO> availabilities() {
+        return availabilityService.availabilities(from, to);
+    }
+}
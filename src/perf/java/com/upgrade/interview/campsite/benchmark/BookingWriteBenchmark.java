@@ -0,0 +1,143 @@
+package com.upgrade.interview.campsite.benchmark;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.service.BookingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BookingService} write paths on an empty calendar. Every thread picks a random stay in the booking window,
+ * so with several threads ({@code -t}) part of the operations end up in a conflict, as in production.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BookingWriteBenchmark {
+
+    @Param({"35", "365"})
+    public int horizonDays;
+
+    @Param({"slots", "intervals"})
+    public String storageMode;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = CampsiteLauncher.start("campsite.calendar.horizon_days=" + horizonDays, "campsite.storage.mode=" + storageMode);
+        bookingService = context.getBean(BookingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    /**
+     * A random stay, cancelled after the invocation if it ended up booked.
+     */
+    @State(Scope.Thread)
+    public static class Stay {
+
+        BookingDTO booking;
+        Long bookingUID;
+
+        @Setup(Level.Invocation)
+        public void pick() {
+            booking = randomStay(0);
+            bookingUID = null;
+        }
+
+        @TearDown(Level.Invocation)
+        public void cancel(BookingWriteBenchmark benchmark) {
+            if (bookingUID != null) {
+                benchmark.bookingService.cancel(bookingUID);
+            }
+        }
+    }
+
+    /**
+     * A random stay booked before the invocation, if it was free.
+     */
+    @State(Scope.Thread)
+    public static class BookedStay {
+
+        BookingWriteBenchmark benchmark;
+        BookingDTO booking;
+        Long bookingUID;
+
+        @Setup(Level.Invocation)
+        public void book(BookingWriteBenchmark benchmark) {
+            this.benchmark = benchmark;
+            // modify shifts the stay one day later
+            booking = randomStay(1);
+            bookingUID = benchmark.tryBook(booking);
+        }
+
+        @TearDown(Level.Invocation)
+        public void cancel() {
+            if (bookingUID != null) {
+                benchmark.bookingService.cancel(bookingUID);
+            }
+        }
+    }
+
+    @Benchmark
+    public Long book(Stay stay) {
+        stay.bookingUID = tryBook(stay.booking);
+        return stay.bookingUID;
+    }
+
+    @Benchmark
+    public Long cancel(BookedStay stay) {
+        Long bookingUID = stay.bookingUID;
+        if (bookingUID != null) {
+            bookingService.cancel(bookingUID);
+            stay.bookingUID = null;
+        }
+        return bookingUID;
+    }
+
+    @Benchmark
+    public Long modify(BookedStay stay) {
+        if (stay.bookingUID == null) {
+            return null;
+        }
+
+        BookingDTO booking = stay.booking;
+        LocalDate arrivalDate = booking.getArrivalDate().plusDays(1);
+        BookingDTO shifted = new BookingDTO(null, booking.getVisitorEmail(), booking.getVisitorFullName(), arrivalDate, booking.getDepartureDate().plusDays(1));
+        try {
+            stay.bookingUID = bookingService.modify(stay.bookingUID, shifted);
+        } catch (CampsiteAlreadyBookedException conflict) {
+            // keeps the original booking, cancelled by the tear down
+        }
+        return stay.bookingUID;
+    }
+
+    /**
+     * @param shift days the stay may later be moved by, its arrival staying within the one month booking window
+     */
+    static BookingDTO randomStay(int shift) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate now = LocalDate.now();
+        long window = ChronoUnit.DAYS.between(now, now.plusMonths(1));
+        LocalDate arrivalDate = now.plusDays(random.nextLong(1, window + 1 - shift));
+        return new BookingDTO(null, "benchmark@upgrade.com", "Benchmark", arrivalDate, arrivalDate.plusDays(random.nextInt(1, 4)));
+    }
+
+    Long tryBook(BookingDTO booking) {
+        try {
+            return bookingService.book(booking);
+        } catch (CampsiteAlreadyBookedException conflict) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.upgrade.interview.campsite.benchmark;
+
+import com.upgrade.interview.campsite.CampsiteApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Starts the application on its own embedded H2 database, on a random port, for the performance tests.
+ */
+final class CampsiteLauncher {
+
+    private CampsiteLauncher() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        String[] defaults = {
+                "spring.datasource.url=jdbc:h2:mem:perf-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "server.port=0",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                // the load comes from a handful of local clients, it is not to be throttled unless asked for
+                "campsite.ratelimit.enabled=false"
+        };
+        // a property given twice on the command line would resolve to both values joined, so the given ones replace the defaults
+        Map<String, String> arguments = new LinkedHashMap<>();
+        Stream.concat(Arrays.stream(defaults), Arrays.stream(properties))
+                .forEach(property -> arguments.put(property.split("=", 2)[0], property));
+        // passed as command line arguments to take precedence over application.properties
+        return new SpringApplicationBuilder(CampsiteApplication.class)
+                .run(arguments.values().stream()
+                        .map(property -> "--" + property)
+                        .toArray(String[]::new));
+    }
+}
@@ -0,0 +1,280 @@
+package com.upgrade.interview.campsite.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load driver: starts the application on H2 and fires a mixed workload at the booking and availability endpoints
+ * from a number of client threads, then reports latency percentiles, throughput and conflicts.
+ * <pre>
+ *     mvn -P perf test-compile exec:exec -Dperf.main=com.upgrade.interview.campsite.benchmark.LoadHarness \
+ *         -Dperf.args="--workload=hot-weekend --threads=32 --duration=60 --campsite.booking.lock.enabled=true"
+ * </pre>
+ * Workloads: {@code hot-weekend} (everybody books the next weekend), {@code uniform} (random stays in the booking window)
+ * and {@code browsing} (mostly reads). Options containing a dot are passed to the application as properties; rate
+ * limiting is off unless {@code --campsite.ratelimit.enabled=true} is given, each thread then being a client of its own.
+ */
+public final class LoadHarness {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    enum Workload {
+        HOT_WEEKEND, UNIFORM, BROWSING
+    }
+
+    enum Operation {
+        BOOK, CANCEL, AVAILABILITIES, BOOKINGS
+    }
+
+    private final String baseUrl;
+    private final Workload workload;
+
+    private LoadHarness(String baseUrl, Workload workload) {
+        this.baseUrl = baseUrl;
+        this.workload = workload;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> properties = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            if (option.contains(".")) {
+                properties.add(option);
+            } else {
+                String[] keyValue = option.split("=", 2);
+                options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "true");
+            }
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        Workload workload = Workload.valueOf(options.getOrDefault("workload", "hot-weekend").toUpperCase().replace('-', '_'));
+
+        ConfigurableApplicationContext context = CampsiteLauncher.start(properties.toArray(new String[0]));
+        try {
+            String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+                    + context.getEnvironment().getProperty("server.servlet.context-path", "");
+            Report report = new LoadHarness(baseUrl, workload).run(threads, durationSeconds);
+            System.out.println(report.format(workload, threads, properties));
+        } finally {
+            context.close();
+        }
+    }
+
+    private Report run(int threads, int durationSeconds) throws Exception {
+        ExecutorService threadPool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Future<Recorder>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String apiKey = "load-" + i;
+            futures.add(threadPool.submit(() -> drive(deadline, apiKey)));
+        }
+
+        Report report = new Report(durationSeconds);
+        for (Future<Recorder> future : futures) {
+            report.merge(future.get());
+        }
+        threadPool.shutdown();
+        return report;
+    }
+
+    private Recorder drive(long deadline, String apiKey) throws IOException {
+        Recorder recorder = new Recorder(apiKey);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long heldBooking = null;
+        while (System.nanoTime() < deadline) {
+            double draw = random.nextDouble();
+            boolean write = (workload == Workload.BROWSING) ? draw < 0.05 : draw < 0.8;
+            if (!write) {
+                if (workload == Workload.BROWSING && draw < 0.35) {
+                    call(recorder, Operation.BOOKINGS, "GET", "/bookings", null);
+                } else {
+                    call(recorder, Operation.AVAILABILITIES, "GET", "/availabilities", null);
+                }
+            } else if (heldBooking != null) {
+                call(recorder, Operation.CANCEL, "DELETE", "/bookings/" + heldBooking, null);
+                heldBooking = null;
+            } else {
+                LocalDate arrivalDate = arrivalDate(random);
+                LocalDate departureDate = arrivalDate.plusDays(random.nextInt(1, 4));
+                String form = "visitorEmail=load%40upgrade.com&visitorFullName=Load&arrivalDate=" + arrivalDate + "&departureDate=" + departureDate;
+                Response response = call(recorder, Operation.BOOK, "POST", "/bookings", form);
+                if (response.status == HttpURLConnection.HTTP_CREATED) {
+                    heldBooking = Long.valueOf(response.body.trim());
+                }
+            }
+        }
+        return recorder;
+    }
+
+    private LocalDate arrivalDate(ThreadLocalRandom random) {
+        LocalDate now = LocalDate.now();
+        if (workload == Workload.HOT_WEEKEND) {
+            return now.plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.FRIDAY)).plusDays(random.nextInt(0, 2));
+        }
+        // arrivals later than one month ahead are rejected, whatever the length of the month
+        return now.plusDays(random.nextLong(1, ChronoUnit.DAYS.between(now, now.plusMonths(1)) + 1));
+    }
+
+    private Response call(Recorder recorder, Operation operation, String method, String path, String form) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("X-API-Key", recorder.apiKey);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream input = (status >= 400) ? connection.getErrorStream() : connection.getInputStream();
+        String body = read(input);
+        recorder.record(operation, System.nanoTime() - start, status, (status == HttpURLConnection.HTTP_CONFLICT) ? reason(body) : null);
+        return new Response(status, body);
+    }
+
+    private static String read(InputStream input) throws IOException {
+        if (input == null) {
+            return "";
+        }
+
+        try (InputStream stream = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String reason(String body) {
+        try {
+            JsonNode reason = OBJECT_MAPPER.readTree(body).get("reason");
+            return (reason != null) ? reason.asText() : "UNKNOWN";
+        } catch (IOException e) {
+            return "UNKNOWN";
+        }
+    }
+
+    private static final class Response {
+
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Per thread measures, merged in a {@link Report} at the end of the run. Each thread is a client of its own for
+     * the rate limiter, and the requests it throttles (429) are counted apart from the errors.
+     */
+    private static class Recorder {
+
+        final String apiKey;
+        final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        final Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+        final Map<Operation, Integer> errors = new EnumMap<>(Operation.class);
+        final Map<Operation, Integer> throttled = new EnumMap<>(Operation.class);
+        final Map<String, Integer> conflicts = new TreeMap<>();
+
+        Recorder(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        void record(Operation operation, long latencyNanos, int status, String conflictReason) {
+            int count = counts.getOrDefault(operation, 0);
+            long[] values = latencies.getOrDefault(operation, new long[1024]);
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count] = latencyNanos;
+            latencies.put(operation, values);
+            counts.put(operation, count + 1);
+            if (conflictReason != null) {
+                conflicts.merge(conflictReason, 1, Integer::sum);
+            } else if (status == HTTP_TOO_MANY_REQUESTS) {
+                throttled.merge(operation, 1, Integer::sum);
+            } else if (status >= 400) {
+                errors.merge(operation, 1, Integer::sum);
+            }
+        }
+    }
+
+    private static final class Report extends Recorder {
+
+        private final int durationSeconds;
+
+        private Report(int durationSeconds) {
+            super(null);
+            this.durationSeconds = durationSeconds;
+        }
+
+        void merge(Recorder recorder) {
+            recorder.counts.forEach((operation, count) -> {
+                int merged = counts.getOrDefault(operation, 0);
+                long[] values = Arrays.copyOf(latencies.getOrDefault(operation, new long[0]), merged + count);
+                System.arraycopy(recorder.latencies.get(operation), 0, values, merged, count);
+                latencies.put(operation, values);
+                counts.put(operation, merged + count);
+            });
+            recorder.errors.forEach((operation, count) -> errors.merge(operation, count, Integer::sum));
+            recorder.throttled.forEach((operation, count) -> throttled.merge(operation, count, Integer::sum));
+            recorder.conflicts.forEach((reason, count) -> conflicts.merge(reason, count, Integer::sum));
+        }
+
+        String format(Workload workload, int threads, List<String> properties) {
+            StringBuilder report = new StringBuilder()
+                    .append(String.format("%nWorkload %s, %d threads, %d s, properties %s%n", workload, threads, durationSeconds, properties))
+                    .append(String.format("%-16s %10s %12s %10s %10s %10s %8s %8s%n", "operation", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "429", "errors"));
+            counts.forEach((operation, count) -> {
+                long[] values = latencies.get(operation);
+                Arrays.sort(values);
+                report.append(String.format("%-16s %10d %12.1f %10.2f %10.2f %10.2f %8d %8d%n", operation, count, (double) count / durationSeconds,
+                        percentile(values, 0.5), percentile(values, 0.99), percentile(values, 0.999), throttled.getOrDefault(operation, 0),
+                        errors.getOrDefault(operation, 0)));
+            });
+            int books = counts.getOrDefault(Operation.BOOK, 0);
+            int conflictCount = conflicts.values().stream().mapToInt(Integer::intValue).sum();
+            report.append(String.format("%nThroughput: %.1f ops/s%n", counts.values().stream().mapToInt(Integer::intValue).sum() / (double) durationSeconds))
+                    .append(String.format("409 conflicts: %d (%.1f%% of the bookings) by reason %s%n", conflictCount,
+                            (books == 0) ? 0.0 : 100.0 * conflictCount / books, conflicts))
+                    .append(String.format("Optimistic lock failures: %d%n", conflicts.getOrDefault(CampsiteAlreadyBookedException.Reason.CONCURRENT_UPDATE.name(), 0)));
+            return report.toString();
+        }
+
+        private static double percentile(long[] sortedValues, double percentile) {
+            if (sortedValues.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedValues.length) - 1;
+            return sortedValues[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.AvailabilityChangeDTO;
+import com.upgrade.interview.campsite.event.CalendarChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.upgrade.interview.campsite.utils.BookingStatus.FREE;
+import static com.upgrade.interview.campsite.utils.BookingStatus.RESERVED;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityBroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AvailabilityBroadcaster broadcaster = new AvailabilityBroadcaster(new SiteRegistry(2), meterRegistry, 2, 60_000, 1);
+
+    @AfterEach
+    public void close() {
+        broadcaster.close();
+    }
+
+    @Test
+    public void testOnCalendarChanged_should_push_the_changes_of_the_followed_site() throws Exception {
+        // GIVEN
+        BlockingQueue<SseEmitter.SseEventBuilder> received = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(2L, new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                received.add(builder);
+            }
+        });
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+
+        // WHEN
+        broadcaster.onCalendarChanged(new CalendarChangedEvent(1L, arrivalDate, arrivalDate.plusDays(1), RESERVED));
+        broadcaster.onCalendarChanged(new CalendarChangedEvent(2L, arrivalDate, arrivalDate.plusDays(2), FREE));
+
+        // THEN
+        SseEmitter.SseEventBuilder change = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(change);
+        AvailabilityChangeDTO payload = change.build().stream()
+                .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                .filter(AvailabilityChangeDTO.class::isInstance)
+                .map(AvailabilityChangeDTO.class::cast)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertAll(
+                () -> assertEquals(2L, payload.getSiteId()),
+                () -> assertEquals(FREE, payload.getStatus()),
+                () -> assertNull(received.poll(200, TimeUnit.MILLISECONDS))
+        );
+    }
+
+    @Test
+    public void testOnCalendarChanged_should_drop_a_slow_subscriber_without_blocking() throws Exception {
+        // GIVEN
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        broadcaster.subscribe(null, new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                sending.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+        broadcaster.onCalendarChanged(new CalendarChangedEvent(1L, arrivalDate, arrivalDate.plusDays(1), RESERVED));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // WHEN
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            for (int i = 0; i < 3; i++) {
+                broadcaster.onCalendarChanged(new CalendarChangedEvent(1L, arrivalDate, arrivalDate.plusDays(1), FREE));
+            }
+        });
+        release.countDown();
+
+        // THEN
+        assertAll(
+                () -> assertEquals(0, broadcaster.subscriberCount()),
+                () -> assertEquals(1.0, meterRegistry.counter("campsite.sse.dropped").count())
+        );
+    }
+}
@@ -63,6 +63,45 @@ class AvailabilityServiceTest {
         );
     }
 
+    @Test
+    @Order(3)
+    public void testAvailabilities_when_booking_is_cancelled_should_free_its_nights() {
+        // GIVEN
+        LocalDate now = LocalDate.now();
+        final long days = ChronoUnit.DAYS.between(now, now.plusMonths(1)) - 1;
+        Long bookingUID = bookingService.book(this.booking(now.plusDays(3), now.plusDays(5)));
+        final int availabilitiesBeforeCancellation = availabilityService.availabilities(null, null).size();
+
+        // WHEN
+        bookingService.cancel(bookingUID);
+        List<AvailabilityDTO> availabilities = availabilityService.availabilities(null, null);
+
+        // THEN
+        assertAll(
+                () -> assertEquals(days - 2, availabilitiesBeforeCancellation),
+                () -> assertEquals(days, availabilities.size())
+        );
+    }
+
+    @Test
+    @Order(4)
+    public void testAvailabilityRanges_when_there_is_1_booking_should_merge_free_nights_into_2_ranges() {
+        // GIVEN
+        LocalDate now = LocalDate.now();
+
+        // WHEN
+        List<AvailabilityDTO> ranges = availabilityService.availabilityRanges(null, null);
+
+        // THEN
+        assertAll(
+                () -> assertEquals(2, ranges.size()),
+                () -> assertEquals(now, ranges.get(0).getStart()),
+                () -> assertEquals(now.plusDays(1), ranges.get(0).getEnd()),
+                () -> assertEquals(now.plusDays(2), ranges.get(1).getStart()),
+                () -> assertEquals(now.plusMonths(1), ranges.get(1).getEnd())
+        );
+    }
+
     private BookingDTO booking(LocalDate arrivalDate, LocalDate departureDate) {
         return new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, departureDate);
     }
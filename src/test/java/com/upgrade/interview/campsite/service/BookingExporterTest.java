@@ -0,0 +1,61 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:exporter;DB_CLOSE_DELAY=-1")
+@DirtiesContext
+class BookingExporterTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingExporter bookingExporter;
+
+    @Test
+    public void testExport_should_stream_the_bookings_of_the_range() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(6);
+        Long firstUID = bookingService.book(new BookingDTO(null, "hamidou.diallo@upgrade.com", "Diallo, Hamidou", arrivalDate, arrivalDate.plusDays(1)));
+        Long secondUID = bookingService.book(new BookingDTO(null, "contact@upgrade.com", "Con\rtact", arrivalDate.plusDays(1), arrivalDate.plusDays(3)));
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+        // WHEN
+        long csvRows = bookingExporter.export(1L, arrivalDate, arrivalDate.plusDays(3), BookingExporter.Format.CSV, csv);
+        long jsonRows = bookingExporter.export(1L, arrivalDate.plusDays(1), arrivalDate.plusDays(3), BookingExporter.Format.JSON, json);
+
+        // THEN
+        String[] lines = new String(csv.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        String jsonExport = new String(json.toByteArray(), StandardCharsets.UTF_8);
+        assertAll(
+                () -> assertEquals(2, csvRows),
+                () -> assertEquals(3, lines.length),
+                () -> assertEquals(firstUID + ",1,hamidou.diallo@upgrade.com,\"Diallo, Hamidou\"," + arrivalDate + "," + arrivalDate.plusDays(1), lines[1]),
+                () -> assertTrue(lines[2].startsWith(secondUID + ",1,contact@upgrade.com,\"Con\rtact\",")),
+                () -> assertEquals(1, jsonRows),
+                () -> assertTrue(jsonExport.startsWith("[{") && jsonExport.endsWith("}]"), jsonExport),
+                () -> assertTrue(jsonExport.contains("\"arrivalDate\":\"" + arrivalDate.plusDays(1) + "\""), jsonExport)
+        );
+    }
+
+    @Test
+    public void testCheckExport_should_throw_exception_when_date_range_is_invalid() {
+        LocalDate from = LocalDate.now();
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> bookingExporter.checkExport(null, from, from.minusDays(1)));
+
+        assertTrue(exception.getMessage().contains("start date is greater than end date"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingLockManagerTest {
+
+    private final BookingLockManager lockManager = new BookingLockManager(true, 128);
+
+    @Test
+    public void testWithNights_should_fail_fast_when_a_night_is_held_by_another_request() throws Exception {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        Future<Long> holder = threadPool.submit(() -> lockManager.withNights(1L, arrivalDate, arrivalDate.plusDays(3), () -> {
+            locked.countDown();
+            await(release);
+            return 1L;
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // WHEN
+        CampsiteAlreadyBookedException exception = assertThrows(CampsiteAlreadyBookedException.class,
+                () -> lockManager.withNights(1L, arrivalDate.plusDays(2), arrivalDate.plusDays(4), () -> 2L));
+        Long nonOverlapping = lockManager.withNights(1L, arrivalDate.plusDays(3), arrivalDate.plusDays(5), () -> 3L);
+        Long otherSite = lockManager.withNights(2L, arrivalDate, arrivalDate.plusDays(3), () -> 5L);
+        release.countDown();
+
+        // THEN
+        assertAll(
+                () -> assertTrue(exception.getMessage().contains("already booked")),
+                () -> assertEquals(CampsiteAlreadyBookedException.Reason.LOCKED, exception.getReason()),
+                () -> assertEquals(3L, nonOverlapping),
+                () -> assertEquals(5L, otherSite),
+                () -> assertEquals(1L, holder.get(5, TimeUnit.SECONDS)),
+                () -> assertEquals(4L, lockManager.withNights(1L, arrivalDate, arrivalDate.plusDays(3), () -> 4L))
+        );
+        threadPool.shutdown();
+    }
+
+    @Test
+    public void testWithNights_should_not_lock_when_disabled() {
+        BookingLockManager disabled = new BookingLockManager(false, 1);
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+
+        Long result = disabled.withNights(1L, arrivalDate, arrivalDate.plusDays(3),
+                () -> disabled.withNights(1L, arrivalDate, arrivalDate.plusDays(3), () -> 1L));
+
+        assertEquals(1L, result);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.CampsiteBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "campsite.booking.pipeline.enabled=true")
+class BookingPipelineTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Test
+    public void testBookAsync_should_fail_only_the_conflicting_commands_of_a_batch() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(5);
+
+        // WHEN
+        List<CompletableFuture<Long>> futures = IntStream.range(0, 8)
+                .mapToObj(i -> bookingService.bookAsync(new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo",
+                        arrivalDate.plusDays(i % 4), arrivalDate.plusDays(i % 4 + 1))))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(exception -> null).join();
+
+        // THEN
+        List<CompletableFuture<Long>> failed = futures.stream().filter(CompletableFuture::isCompletedExceptionally).collect(Collectors.toList());
+        CompletionException exception = assertThrows(CompletionException.class, () -> failed.get(0).join());
+        assertAll(
+                () -> assertEquals(4, failed.size()),
+                () -> assertTrue(futures.subList(0, 4).stream().noneMatch(CompletableFuture::isCompletedExceptionally)),
+                () -> assertTrue(exception.getCause() instanceof CampsiteAlreadyBookedException),
+                () -> assertEquals(4, bookingService.bookings(arrivalDate, arrivalDate.plusDays(4)).size())
+        );
+    }
+
+    @Test
+    public void testCancel_should_wait_for_the_writer_of_the_site() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(12);
+        BookingDTO booking = new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, arrivalDate.plusDays(2));
+        Long bookingUID = bookingService.book(booking);
+
+        // WHEN
+        bookingService.cancel(bookingUID);
+
+        // THEN
+        assertAll(
+                () -> assertTrue(bookingService.bookings(arrivalDate, arrivalDate.plusDays(2)).isEmpty()),
+                () -> assertNotNull(bookingService.book(booking))
+        );
+    }
+
+    @Test
+    public void testSubmit_should_reject_the_commands_once_closed() {
+        // GIVEN
+        BookingPipeline pipeline = new BookingPipeline(new TransactionTemplate(), new SimpleMeterRegistry(), true, 4, 4);
+        pipeline.close();
+
+        // WHEN / THEN
+        assertThrows(CampsiteBusyException.class, () -> pipeline.submit(1L, () -> 1L));
+    }
+}
@@ -0,0 +1,89 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "campsite.storage.mode=intervals")
+class BookingServiceIntervalModeTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Test
+    public void testBook_should_store_a_single_row_per_reservation() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        LocalDate departureDate = arrivalDate.plusDays(3);
+        final long rowsBefore = bookingRepository.count();
+
+        // WHEN
+        final Long bookUID = bookingService.book(booking(arrivalDate, departureDate));
+        final Optional<BookingEntity> entity = bookingRepository.findById(bookUID);
+
+        // THEN
+        assertAll(
+                () -> assertEquals(rowsBefore + 1, bookingRepository.count()),
+                () -> assertTrue(entity.isPresent()),
+                () -> assertEquals(arrivalDate, entity.get().getArrivalDate()),
+                () -> assertEquals(departureDate, entity.get().getDepartureDate()),
+                () -> assertEquals(entity.get().getId(), entity.get().getParentId())
+        );
+    }
+
+    @Test
+    public void testBook_should_throw_exception_when_date_range_overlaps_a_reservation() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusWeeks(1);
+        bookingService.book(booking(arrivalDate, arrivalDate.plusDays(2)));
+
+        // WHEN
+        CampsiteAlreadyBookedException exception = assertThrows(CampsiteAlreadyBookedException.class,
+                () -> bookingService.book(booking(arrivalDate.plusDays(1), arrivalDate.plusDays(3))));
+        assertTrue(exception.getMessage().contains("already booked"));
+    }
+
+    @Test
+    public void testCancel_should_delete_the_reservation_and_free_its_nights() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusWeeks(2);
+        LocalDate departureDate = arrivalDate.plusDays(2);
+        Long bookUID = bookingService.book(booking(arrivalDate, departureDate));
+
+        // WHEN
+        bookingService.cancel(bookUID);
+        Long newBookUID = bookingService.book(booking(arrivalDate, departureDate));
+        Collection<BookingDTO> bookings = bookingService.bookings(arrivalDate, departureDate);
+
+        // THEN
+        assertAll(
+                () -> assertFalse(bookingRepository.findById(bookUID).isPresent()),
+                () -> assertEquals(1, bookings.size()),
+                () -> assertEquals(newBookUID, bookings.iterator().next().getUid())
+        );
+    }
+
+    @Test
+    public void testStorage_should_not_contain_free_rows() {
+        List<BookingEntity> rows = bookingRepository.findAll();
+        assertTrue(rows.stream().noneMatch(row -> "FREE".equals(row.getStatus())));
+    }
+
+    private BookingDTO booking(LocalDate arrivalDate, LocalDate departureDate) {
+        return new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, departureDate);
+    }
+}
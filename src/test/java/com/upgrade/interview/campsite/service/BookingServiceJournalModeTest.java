@@ -0,0 +1,96 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.repository.BookingRepository;
+import com.upgrade.interview.campsite.repository.JournalBookingStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "campsite.storage.mode=journal",
+        "campsite.journal.snapshot_every=3"
+})
+class BookingServiceJournalModeTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @TempDir
+    static Path journalDirectory;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("campsite.journal.dir", () -> journalDirectory.toString());
+    }
+
+    @Test
+    public void testBook_should_recover_the_reservations_from_the_snapshot_and_the_journal() throws Exception {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(3);
+        final long rowsBefore = bookingRepository.count();
+        Long firstUID = bookingService.book(booking(arrivalDate, arrivalDate.plusDays(1)));
+        Long secondUID = bookingService.book(booking(arrivalDate.plusDays(1), arrivalDate.plusDays(2)));
+        Long thirdUID = bookingService.book(booking(arrivalDate.plusDays(2), arrivalDate.plusDays(3)));
+        bookingService.cancel(secondUID);
+        bookingService.modify(thirdUID, booking(arrivalDate.plusDays(1), arrivalDate.plusDays(4)));
+        CampsiteAlreadyBookedException exception = assertThrows(CampsiteAlreadyBookedException.class,
+                () -> bookingService.book(booking(arrivalDate.plusDays(3), arrivalDate.plusDays(5))));
+
+        // WHEN
+        JournalBookingStore recovered = new JournalBookingStore(journalDirectory.toString(), 4096, 3, true);
+        List<BookingEntity> reservations = recovered.findReservedBookings(1L, arrivalDate, arrivalDate.plusDays(5));
+        recovered.close();
+
+        // THEN
+        assertAll(
+                () -> assertEquals(rowsBefore, bookingRepository.count()),
+                () -> assertTrue(Files.exists(journalDirectory.resolve("snapshot"))),
+                () -> assertEquals(CampsiteAlreadyBookedException.Reason.UNAVAILABLE, exception.getReason()),
+                () -> assertEquals(2, reservations.size()),
+                () -> assertEquals(firstUID, reservations.get(0).getId()),
+                () -> assertEquals(thirdUID, reservations.get(1).getId()),
+                () -> assertEquals(arrivalDate.plusDays(4), reservations.get(1).getDepartureDate()),
+                () -> assertEquals(2, bookingService.bookings(arrivalDate, arrivalDate.plusDays(5)).size()),
+                () -> assertFalse(recovered.findBooking(secondUID).isPresent())
+        );
+    }
+
+    @Test
+    public void testBookAll_should_undo_the_reservations_of_a_rolled_back_batch() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(20);
+        bookingService.book(booking(arrivalDate.plusDays(2), arrivalDate.plusDays(3)));
+
+        // WHEN
+        List<BookingDTO> batch = Arrays.asList(booking(arrivalDate, arrivalDate.plusDays(1)), booking(arrivalDate.plusDays(2), arrivalDate.plusDays(3)));
+        List<String> statuses = bookingService.bookAll(batch).stream().map(result -> result.getStatus().name()).collect(Collectors.toList());
+
+        // THEN
+        assertAll(
+                () -> assertEquals(Arrays.asList("CREATED", "CONFLICT"), statuses),
+                () -> assertEquals(2, bookingService.bookings(arrivalDate, arrivalDate.plusDays(3)).size())
+        );
+    }
+
+    private static BookingDTO booking(LocalDate arrivalDate, LocalDate departureDate) {
+        return new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, departureDate);
+    }
+}
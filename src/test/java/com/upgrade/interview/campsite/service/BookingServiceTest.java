@@ -6,6 +6,7 @@ import com.upgrade.interview.campsite.entity.BookingEntity;
 import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
 import com.upgrade.interview.campsite.exception.InvalidInputException;
 import com.upgrade.interview.campsite.repository.BookingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +28,12 @@ class BookingServiceTest {
     @Autowired
     private BookingMapper bookingMapper;
 
+    @Autowired
+    private CalendarHorizonRoller calendarHorizonRoller;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @SpyBean
     private BookingService bookingService;
 
@@ -277,6 +284,57 @@ class BookingServiceTest {
 
     }
 
+    @Test
+    public void testBook_should_count_conflicts_by_reason() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(27);
+        final BookingDTO booking = booking(arrivalDate, arrivalDate.plusDays(1));
+        bookingService.book(booking);
+        final double conflictsBefore = meterRegistry.counter("campsite.conflicts", "operation", "book", "reason", "UNAVAILABLE").count();
+
+        // WHEN
+        assertThrows(CampsiteAlreadyBookedException.class, () -> bookingService.book(booking));
+
+        // THEN
+        assertAll(
+                () -> assertEquals(conflictsBefore + 1, meterRegistry.counter("campsite.conflicts", "operation", "book", "reason", "UNAVAILABLE").count()),
+                () -> assertTrue(meterRegistry.timer("campsite.operations", "operation", "book", "outcome", "success").count() > 0)
+        );
+    }
+
+    @Test
+    public void testBookings_should_be_cached_until_a_booking_of_the_range_commits() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(29);
+        final double hitsBefore = meterRegistry.get("cache.gets").tags("cache", "bookings", "result", "hit").functionCounter().count();
+
+        // WHEN
+        final Collection<BookingDTO> first = bookingService.bookings(arrivalDate, arrivalDate.plusDays(1));
+        final Collection<BookingDTO> cached = bookingService.bookings(arrivalDate, arrivalDate.plusDays(1));
+        bookingService.book(booking(arrivalDate, arrivalDate.plusDays(1)));
+        final Collection<BookingDTO> afterBooking = bookingService.bookings(arrivalDate, arrivalDate.plusDays(1));
+
+        // THEN
+        assertAll(
+                () -> assertTrue(first.isEmpty()),
+                () -> assertSame(first, cached),
+                () -> assertEquals(hitsBefore + 1, meterRegistry.get("cache.gets").tags("cache", "bookings", "result", "hit").functionCounter().count()),
+                () -> assertEquals(1, afterBooking.size())
+        );
+    }
+
+    @Test
+    public void testRoll_should_only_add_missing_slots() {
+        // GIVEN
+        final long rowsBefore = bookingRepository.count();
+
+        // WHEN
+        calendarHorizonRoller.roll();
+
+        // THEN
+        assertEquals(rowsBefore, bookingRepository.count());
+    }
+
     private BookingDTO booking(LocalDate arrivalDate, LocalDate departureDate) {
         return new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, departureDate);
     }
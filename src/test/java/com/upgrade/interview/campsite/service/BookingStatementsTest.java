@@ -0,0 +1,60 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.repository.BookingRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BookingStatementsTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void testBook_then_cancel_should_not_depend_on_the_number_of_nights() {
+        // GIVEN
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        LocalDate arrivalDate = LocalDate.now().plusDays(5);
+
+        // WHEN
+        statistics.clear();
+        Long bookingUID = bookingService.book(new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, arrivalDate.plusDays(3)));
+        final long bookStatements = statistics.getPrepareStatementCount();
+        final int reservedRows = bookingRepository.findByIdOrParentId(bookingUID, bookingUID).size();
+        statistics.clear();
+        bookingService.cancel(bookingUID);
+        final long cancelStatements = statistics.getPrepareStatementCount();
+
+        // THEN
+        assertAll(
+                () -> assertEquals(cancelStatements, cancelStatements(arrivalDate.plusDays(4), 1)),
+                () -> assertEquals(4, reservedRows),
+                () -> assertEquals(0, bookingRepository.findByIdOrParentId(bookingUID, bookingUID).size()),
+                () -> assertTrue(bookStatements <= 4, "book statements: " + bookStatements),
+                () -> assertTrue(cancelStatements <= 3, "cancel statements: " + cancelStatements)
+        );
+    }
+
+    private long cancelStatements(LocalDate arrivalDate, int nights) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Long bookingUID = bookingService.book(new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, arrivalDate.plusDays(nights)));
+        statistics.clear();
+        bookingService.cancel(bookingUID);
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,77 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.DTO.HoldDTO;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "campsite.hold.tick_ms=20")
+class HoldRegistryTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private HoldRegistry holdRegistry;
+
+    @Test
+    public void testHold_should_keep_the_nights_for_its_confirmation() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(6);
+        HoldDTO hold = bookingService.hold(booking(arrivalDate, arrivalDate.plusDays(2)), 10);
+
+        // WHEN
+        int freeNights = availabilityService.availabilities(arrivalDate, arrivalDate.plusDays(3)).size();
+        CampsiteAlreadyBookedException exception = assertThrows(CampsiteAlreadyBookedException.class,
+                () -> bookingService.book(booking(arrivalDate.plusDays(1), arrivalDate.plusDays(3))));
+        Long bookingUID = bookingService.confirm(hold.getHoldId());
+
+        // THEN
+        assertAll(
+                () -> assertEquals(1, freeNights),
+                () -> assertEquals(CampsiteAlreadyBookedException.Reason.HELD, exception.getReason()),
+                () -> assertNotNull(bookingUID),
+                () -> assertFalse(holdRegistry.find(hold.getHoldId()).isPresent()),
+                () -> assertEquals(1, availabilityService.availabilities(arrivalDate, arrivalDate.plusDays(3)).size()),
+                () -> assertThrows(InvalidInputException.class, () -> bookingService.confirm(hold.getHoldId()))
+        );
+    }
+
+    @Test
+    public void testHold_should_release_the_nights_once_expired() throws InterruptedException {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(14);
+        BookingDTO booking = booking(arrivalDate, arrivalDate.plusDays(1));
+        booking.setSiteId(1L);
+        HoldDTO hold = holdRegistry.hold(booking, Duration.ofMillis(50));
+        boolean heldFirst = availabilityService.availabilities(arrivalDate, arrivalDate.plusDays(1)).isEmpty();
+
+        // WHEN
+        for (int i = 0; i < 100 && holdRegistry.find(hold.getHoldId()).isPresent(); i++) {
+            Thread.sleep(20);
+        }
+
+        // THEN
+        assertAll(
+                () -> assertTrue(heldFirst),
+                () -> assertFalse(holdRegistry.find(hold.getHoldId()).isPresent()),
+                () -> assertEquals(1, availabilityService.availabilities(arrivalDate, arrivalDate.plusDays(1)).size()),
+                () -> assertNotNull(bookingService.book(booking(arrivalDate, arrivalDate.plusDays(1))))
+        );
+    }
+
+    private static BookingDTO booking(LocalDate arrivalDate, LocalDate departureDate) {
+        return new BookingDTO(null, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, departureDate);
+    }
+}
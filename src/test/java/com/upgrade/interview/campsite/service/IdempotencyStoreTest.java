@@ -0,0 +1,81 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private static final String CLIENT = "key:client-1";
+
+    private final IdempotencyStore idempotencyStore = new IdempotencyStore(new SimpleMeterRegistry(), 10, 60);
+
+    @Test
+    public void testExecute_should_replay_the_result_of_the_first_request() {
+        // GIVEN
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Long> inFlight = new CompletableFuture<>();
+
+        // WHEN
+        CompletableFuture<Long> first = idempotencyStore.execute(CLIENT, "book", "key-1", "request", () -> {
+            runs.incrementAndGet();
+            return inFlight;
+        });
+        CompletableFuture<Long> retry = idempotencyStore.execute(CLIENT, "book", "key-1", "request", () -> CompletableFuture.completedFuture((long) runs.incrementAndGet()));
+        inFlight.complete(42L);
+        CompletableFuture<Long> lateRetry = idempotencyStore.execute(CLIENT, "book", "key-1", "request", () -> CompletableFuture.completedFuture((long) runs.incrementAndGet()));
+
+        // THEN
+        assertAll(
+                () -> assertEquals(1, runs.get()),
+                () -> assertEquals(42L, first.join()),
+                () -> assertEquals(42L, retry.join()),
+                () -> assertEquals(42L, lateRetry.join()),
+                () -> assertThrows(InvalidInputException.class, () -> idempotencyStore.execute(CLIENT, "book", "key-1", "another request", CompletableFuture::new)),
+                () -> assertEquals(7L, idempotencyStore.execute(CLIENT, "modify", "key-1", "request", () -> CompletableFuture.completedFuture(7L)).join())
+        );
+    }
+
+    @Test
+    public void testExecute_should_run_again_a_failed_request() {
+        // GIVEN
+        assertThrows(CampsiteAlreadyBookedException.class, () -> idempotencyStore.execute(CLIENT, "book", "key-2", "request", () -> {
+            throw new CampsiteAlreadyBookedException("Invalid booking dates: campsite already booked");
+        }));
+
+        // WHEN
+        CompletableFuture<Long> retry = idempotencyStore.execute(CLIENT, "book", "key-2", "request", () -> CompletableFuture.completedFuture(43L));
+
+        // THEN
+        assertEquals(43L, retry.join());
+    }
+
+    @Test
+    public void testExecute_should_not_share_a_key_between_clients() {
+        // GIVEN
+        AtomicLong bookings = new AtomicLong();
+        CompletableFuture<Long> first = idempotencyStore.execute("key:client-1", "book", "key-3", "request",
+                () -> CompletableFuture.completedFuture(bookings.incrementAndGet()));
+
+        // WHEN
+        CompletableFuture<Long> second = idempotencyStore.execute("ip:10.0.0.2", "book", "key-3", "request",
+                () -> CompletableFuture.completedFuture(bookings.incrementAndGet()));
+
+        // THEN
+        assertAll(
+                () -> assertEquals(2, bookings.get()),
+                () -> assertEquals(1L, first.join()),
+                () -> assertEquals(2L, second.join()),
+                () -> assertEquals(2L, idempotencyStore.execute("ip:10.0.0.2", "book", "key-3", "request", CompletableFuture::new).join()),
+                () -> assertDoesNotThrow(() -> idempotencyStore.execute("ip:10.0.0.3", "book", "key-3", "another request",
+                        () -> CompletableFuture.completedFuture(bookings.incrementAndGet())))
+        );
+    }
+}
@@ -0,0 +1,175 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.DTO.BookingDTO;
+import com.upgrade.interview.campsite.DTO.BookingPageDTO;
+import com.upgrade.interview.campsite.DTO.BookingResultDTO;
+import com.upgrade.interview.campsite.entity.BookingEntity;
+import com.upgrade.interview.campsite.exception.CampsiteAlreadyBookedException;
+import com.upgrade.interview.campsite.exception.InvalidInputException;
+import com.upgrade.interview.campsite.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "campsite.site.count=3")
+class MultiSiteBookingTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private CalendarVersion calendarVersion;
+
+    @Test
+    public void testBook_should_keep_the_sites_independent() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(4);
+        LocalDate departureDate = arrivalDate.plusDays(2);
+
+        // WHEN
+        Long site1BookUID = bookingService.book(booking(1L, arrivalDate, departureDate));
+        Long site2BookUID = bookingService.book(booking(2L, arrivalDate, departureDate));
+        CampsiteAlreadyBookedException exception = assertThrows(CampsiteAlreadyBookedException.class,
+                () -> bookingService.book(booking(1L, arrivalDate.plusDays(1), departureDate.plusDays(1))));
+        Collection<BookingDTO> site2Bookings = bookingService.bookings(2L, arrivalDate, departureDate);
+        List<Long> freeSites = availabilityService.freeSites(arrivalDate, departureDate);
+        int site3FreeNights = availabilityService.availabilities(3L, arrivalDate, departureDate).size();
+
+        // THEN
+        assertAll(
+                () -> assertNotEquals(site1BookUID, site2BookUID),
+                () -> assertTrue(exception.getMessage().contains("already booked")),
+                () -> assertEquals(1, site2Bookings.size()),
+                () -> assertEquals(2L, site2Bookings.iterator().next().getSiteId()),
+                () -> assertEquals(Arrays.asList(3L), freeSites),
+                () -> assertEquals(2, site3FreeNights)
+        );
+    }
+
+    @Test
+    public void testBookAll_should_report_the_outcome_of_each_booking() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(10);
+        bookingService.book(booking(3L, arrivalDate, arrivalDate.plusDays(1)));
+        List<BookingDTO> batch = Arrays.asList(
+                booking(1L, arrivalDate, arrivalDate.plusDays(2)),
+                booking(1L, arrivalDate.plusDays(1), arrivalDate.plusDays(3)),
+                booking(2L, arrivalDate, arrivalDate.plusDays(2)),
+                booking(1L, LocalDate.now(), LocalDate.now().plusDays(1)),
+                booking(3L, arrivalDate, arrivalDate.plusDays(1)));
+
+        // WHEN
+        List<BookingResultDTO> results = bookingService.bookAll(batch);
+
+        // THEN
+        assertAll(
+                () -> assertEquals(5, results.size()),
+                () -> assertEquals(BookingResultDTO.Status.CREATED, results.get(0).getStatus()),
+                () -> assertEquals(BookingResultDTO.Status.CONFLICT, results.get(1).getStatus()),
+                () -> assertEquals(BookingResultDTO.Status.CREATED, results.get(2).getStatus()),
+                () -> assertEquals(BookingResultDTO.Status.INVALID, results.get(3).getStatus()),
+                () -> assertEquals(BookingResultDTO.Status.CONFLICT, results.get(4).getStatus()),
+                () -> assertEquals("UNAVAILABLE", results.get(4).getReason()),
+                () -> assertEquals(1, bookingService.bookings(1L, arrivalDate, arrivalDate.plusDays(3)).size()),
+                () -> assertFalse(availabilityService.freeSites(arrivalDate, arrivalDate.plusDays(1)).contains(2L))
+        );
+    }
+
+    @Test
+    public void testModify_should_shift_the_booking_over_its_own_nights() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(20);
+        BookingDTO booking = booking(3L, arrivalDate, arrivalDate.plusDays(2));
+        Long bookingUID = bookingService.book(booking);
+        booking.setArrivalDate(arrivalDate.plusDays(1));
+        booking.setDepartureDate(arrivalDate.plusDays(3));
+
+        // WHEN
+        Long modifiedBookingUID = bookingService.modify(bookingUID, booking);
+        List<LocalDate> nights = bookingRepository.findByIdOrParentId(bookingUID, bookingUID).stream()
+                .filter(entity -> !entity.isParent())
+                .map(BookingEntity::getArrivalDate)
+                .sorted()
+                .collect(Collectors.toList());
+
+        // THEN
+        assertAll(
+                () -> assertEquals(bookingUID, modifiedBookingUID),
+                () -> assertEquals(Arrays.asList(arrivalDate.plusDays(1), arrivalDate.plusDays(2)), nights),
+                () -> assertEquals(arrivalDate.plusDays(3), bookingRepository.findById(bookingUID).get().getDepartureDate()),
+                () -> assertTrue(bookingService.bookings(3L, arrivalDate, arrivalDate.plusDays(1)).isEmpty())
+        );
+    }
+
+    @Test
+    public void testBookingsPage_should_continue_after_the_last_booking_of_the_previous_page() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(24);
+        List<Long> bookingUIDs = IntStream.range(0, 4)
+                .mapToObj(i -> bookingService.book(booking(2L, arrivalDate.plusDays(i), arrivalDate.plusDays(i + 1))))
+                .collect(Collectors.toList());
+
+        // WHEN
+        BookingPageDTO firstPage = bookingService.bookingsPage(2L, arrivalDate, arrivalDate.plusDays(5), 3, null);
+        BookingPageDTO lastPage = bookingService.bookingsPage(2L, arrivalDate, arrivalDate.plusDays(5), 3, firstPage.getNext());
+
+        // THEN
+        assertAll(
+                () -> assertEquals(bookingUIDs.subList(0, 3), firstPage.getBookings().stream().map(BookingDTO::getUid).collect(Collectors.toList())),
+                () -> assertNotNull(firstPage.getNext()),
+                () -> assertEquals(bookingUIDs.subList(3, 4), lastPage.getBookings().stream().map(BookingDTO::getUid).collect(Collectors.toList())),
+                () -> assertNull(lastPage.getNext()),
+                () -> assertThrows(InvalidInputException.class, () -> bookingService.bookingsPage(2L, arrivalDate, arrivalDate.plusDays(5), 3, "not a token"))
+        );
+    }
+
+    @Test
+    public void testBook_should_only_change_the_version_of_its_site() {
+        // GIVEN
+        LocalDate arrivalDate = LocalDate.now().plusDays(15);
+        String site1Etag = calendarVersion.etag("availabilities", 1L);
+        String site2Etag = calendarVersion.etag("availabilities", 2L);
+        String sitesEtag = calendarVersion.etag("sites");
+
+        // WHEN
+        bookingService.book(booking(2L, arrivalDate, arrivalDate.plusDays(1)));
+
+        // THEN
+        assertAll(
+                () -> assertEquals(site1Etag, calendarVersion.etag("availabilities", 1L)),
+                () -> assertNotEquals(site2Etag, calendarVersion.etag("availabilities", 2L)),
+                () -> assertNotEquals(sitesEtag, calendarVersion.etag("sites")),
+                () -> assertNotEquals(calendarVersion.etag("availabilities", 1L, arrivalDate, null, "nights"),
+                        calendarVersion.etag("availabilities", 1L, arrivalDate, null, "ranges"))
+        );
+    }
+
+    @Test
+    public void testBook_should_throw_exception_when_site_is_unknown() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(4);
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class,
+                () -> bookingService.book(booking(4L, arrivalDate, arrivalDate.plusDays(1))));
+
+        assertTrue(exception.getMessage().contains("Invalid site ID"));
+    }
+
+    private BookingDTO booking(Long siteId, LocalDate arrivalDate, LocalDate departureDate) {
+        return new BookingDTO(null, siteId, "hamidou.diallo@upgrade.com", "Hamidou Diallo", arrivalDate, departureDate);
+    }
+}
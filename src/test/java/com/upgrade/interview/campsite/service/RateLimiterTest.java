@@ -0,0 +1,37 @@
+package com.upgrade.interview.campsite.service;
+
+import com.upgrade.interview.campsite.exception.CampsiteRateLimitedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final RateLimiter rateLimiter = new RateLimiter(new SimpleMeterRegistry(), true, 3, 1, 2, 0.5, 10, 60, now::get);
+
+    @Test
+    public void testAcquire_should_reject_once_the_budget_is_spent_until_it_refills() {
+        // GIVEN
+        rateLimiter.acquire("client-1", RateLimiter.Budget.WRITE);
+        rateLimiter.acquire("client-1", RateLimiter.Budget.WRITE);
+
+        // WHEN
+        CampsiteRateLimitedException exception = assertThrows(CampsiteRateLimitedException.class,
+                () -> rateLimiter.acquire("client-1", RateLimiter.Budget.WRITE));
+
+        // THEN
+        assertAll(
+                () -> assertEquals(2, exception.getRetryAfterSeconds()),
+                () -> assertDoesNotThrow(() -> rateLimiter.acquire("client-1", RateLimiter.Budget.READ)),
+                () -> assertDoesNotThrow(() -> rateLimiter.acquire("client-2", RateLimiter.Budget.WRITE))
+        );
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertDoesNotThrow(() -> rateLimiter.acquire("client-1", RateLimiter.Budget.WRITE));
+        assertThrows(CampsiteRateLimitedException.class, () -> rateLimiter.acquire("client-1", RateLimiter.Budget.WRITE));
+    }
+}